@@ -0,0 +1,88 @@
+package it.uniroma3.idd.benchmark;
+
+import it.uniroma3.idd.LuceneWebApp;
+import it.uniroma3.idd.service.LuceneIndexer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Contesto Spring (senza server web) costruito su un corpus sintetico in una directory temporanea.
+ * All'avvio LuceneIndexer indicizza il corpus come in produzione (start attende la fine del job); i bean si recuperano con getBean().
+ */
+public final class BenchmarkApp implements AutoCloseable {
+
+    private final Path root;
+    private final ConfigurableApplicationContext context;
+
+
+    private BenchmarkApp(Path root, ConfigurableApplicationContext context) {
+        this.root = root;
+        this.context = context;
+    }
+
+
+    /* overrides: proprietà aggiuntive (es. lucene.cache.results.maxBytes) */
+    public static BenchmarkApp start(Map<String, Object> overrides) throws IOException {
+        Path root = Files.createTempDirectory("idd-jmh-");
+        SyntheticCorpus.generate(root);
+
+        Map<String, Object> props = new HashMap<>();
+        props.put("data.articles.path", SyntheticCorpus.articlesPath(root).toString());
+        props.put("data.tables.path", SyntheticCorpus.tablesPath(root).toString());
+        props.put("data.img.path", SyntheticCorpus.imagesPath(root).toString());
+        props.put("lucene.index.directory", root.resolve("index").toString());
+        props.put("lucene.index_table.directory", root.resolve("index_tables").toString());
+        props.put("lucene.index_img.directory", root.resolve("index_img").toString());
+        // Le metriche di qualità hanno un benchmark dedicato (RelevanceBenchmark)
+        props.put("lucene.metrics.evaluation", "off");
+        props.put("lucene.searcher.refreshIntervalMs", "0");
+        props.put("lucene.warmup.enabled", "false"); // il warm-up lo fa JMH
+        props.put("spring.main.banner-mode", "off");
+        props.put("logging.level.root", "WARN");
+        props.putAll(overrides);
+
+        // Passate come argomenti da riga di comando: hanno precedenza su application.properties
+        String[] args = props.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LuceneWebApp.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+        // L'indicizzazione gira in background: i benchmark partono a indici completi
+        try {
+            if (!context.getBean(LuceneIndexer.class).awaitIndexing(10, TimeUnit.MINUTES)) {
+                throw new IOException("Indicizzazione del corpus sintetico non completata");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Attesa dell'indicizzazione interrotta", e);
+        }
+        return new BenchmarkApp(root, context);
+    }
+
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+
+    public Path getRoot() {
+        return root;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(root);
+    }
+}
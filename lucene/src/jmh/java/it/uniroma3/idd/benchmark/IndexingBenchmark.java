@@ -0,0 +1,64 @@
+package it.uniroma3.idd.benchmark;
+
+import it.uniroma3.idd.service.LuceneIndexer;
+import org.apache.lucene.codecs.Codec;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Throughput di LuceneIndexer.indexArticles in documenti al secondo: ogni invocazione
+ * ricostruisce da zero l'indice degli articoli del corpus sintetico in una directory nuova.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(SyntheticCorpus.ARTICLES)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IndexingBenchmark {
+
+    @Param({"true", "false"})
+    public String compactStoredFields;
+
+    private BenchmarkApp app;
+    private LuceneIndexer indexer;
+    private Path indexDirectory;
+    private int run;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        app = BenchmarkApp.start(Map.of("lucene.index.compactStoredFields", compactStoredFields));
+        indexer = app.getBean(LuceneIndexer.class);
+    }
+
+
+    @Setup(Level.Invocation)
+    public void newDirectory() {
+        indexDirectory = app.getRoot().resolve("bench-index-" + run++);
+    }
+
+
+    @TearDown(Level.Invocation)
+    public void deleteDirectory() throws IOException {
+        FileSystemUtils.deleteRecursively(indexDirectory);
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        app.close();
+    }
+
+
+    @Benchmark
+    public void indexArticles() throws IOException {
+        indexer.indexArticles(indexDirectory.toString(), Codec.getDefault());
+    }
+}
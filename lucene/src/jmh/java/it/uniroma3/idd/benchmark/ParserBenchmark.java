@@ -0,0 +1,64 @@
+package it.uniroma3.idd.benchmark;
+
+import it.uniroma3.idd.model.Article;
+import it.uniroma3.idd.utils.Parser;
+import org.openjdk.jmh.annotations.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Estrazione degli articoli dal corpus sintetico: intero corpus (Parser.articleParser)
+ * e singolo file HTML o JATS, con l'estrazione in streaming o con il DOM jsoup completo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"html", "jats"})
+    public String format;
+
+    @Param({"true", "false"})
+    public String streaming;
+
+    private BenchmarkApp app;
+    private Parser parser;
+    private File articleFile;
+
+
+    @Setup
+    public void setup() throws IOException {
+        app = BenchmarkApp.start(Map.of("lucene.parser.streaming", streaming));
+        parser = app.getBean(Parser.class);
+        // Nel corpus sintetico gli articoli pari sono HTML, quelli dispari JATS
+        String name = "html".equals(format) ? "PMC0.html" : "PMC1.html";
+        articleFile = SyntheticCorpus.articlesPath(app.getRoot()).resolve(name).toFile();
+    }
+
+
+    @TearDown
+    public void tearDown() throws IOException {
+        app.close();
+    }
+
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Article parseArticleFile() {
+        return parser.parseArticleFile(articleFile);
+    }
+
+
+    // Non dipende da format: il risultato è lo stesso per entrambi i valori del parametro
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Article> articleParser() {
+        return parser.articleParser();
+    }
+}
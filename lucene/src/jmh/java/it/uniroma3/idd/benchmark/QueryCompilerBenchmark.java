@@ -0,0 +1,106 @@
+package it.uniroma3.idd.benchmark;
+
+import it.uniroma3.idd.config.LuceneConfig;
+import it.uniroma3.idd.service.QueryCompiler;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Costruzione delle query: QueryCompiler (con e senza cache delle query compilate)
+ * confrontato con il vecchio Searcher.buildQuery (Pattern e parser creati a ogni chiamata).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryCompilerBenchmark {
+
+    private static final String[] QUERIES = {
+            "diet", "nutrition quality", "title:kidney publicationYear:[2010 TO 2020]",
+            "\"dietary patterns\"", "sugar AND cardiovascular", "protein~"
+    };
+
+    @Param({"articoli", "tabelle"})
+    public String indexKey;
+
+    // 0 = cache delle query disattivata
+    @Param({"0", "1024"})
+    public long maxEntries;
+
+    private Analyzer analyzer;
+    private QueryCompiler compiler;
+    private int next;
+
+
+    @Setup
+    public void setup() {
+        analyzer = new LuceneConfig().perFieldAnalyzer();
+        compiler = new QueryCompiler(analyzer, maxEntries);
+    }
+
+
+    @Benchmark
+    public Query compile() throws ParseException {
+        return compiler.compile(nextQuery(), indexKey);
+    }
+
+
+    @Benchmark
+    public Query legacyBuildQuery() throws ParseException {
+        return legacyBuildQuery(nextQuery(), indexKey);
+    }
+
+
+    private String nextQuery() {
+        next = (next + 1) % QUERIES.length;
+        return QUERIES[next];
+    }
+
+
+    // Copia del Searcher.buildQuery precedente a QueryCompiler, come riferimento
+    private Query legacyBuildQuery(String testoRicerca, String indexKey) throws ParseException {
+        List<Query> queries = new ArrayList<>();
+        String[] defaultFields;
+        switch (indexKey.toLowerCase()) {
+            case "articoli":
+                defaultFields = new String[]{"title", "authors", "articleAbstract", "paragraphs", "pubblicationDate"};
+                break;
+            case "tabelle":
+                defaultFields = new String[]{"caption", "body", "mentions", "context_paragraphs"};
+                break;
+            default:
+                defaultFields = new String[]{"caption", "alt", "mentions", "context_paragraphs", "fileName"};
+                break;
+        }
+
+        Pattern yearRangePattern = Pattern.compile("publicationYear\\s*:\\s*\\[(\\d{4})\\s+TO\\s+(\\d{4})\\]");
+        Matcher mYear = yearRangePattern.matcher(testoRicerca);
+        if (mYear.find()) {
+            queries.add(IntPoint.newRangeQuery("publicationYear", Integer.parseInt(mYear.group(1)), Integer.parseInt(mYear.group(2))));
+            testoRicerca = mYear.replaceAll("");
+        }
+        if (!testoRicerca.trim().isEmpty()) {
+            MultiFieldQueryParser parser = new MultiFieldQueryParser(defaultFields, analyzer);
+            queries.add(parser.parse(testoRicerca.trim()));
+        }
+
+        if (queries.size() == 1) return queries.get(0);
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (Query q : queries) builder.add(q, BooleanClause.Occur.MUST);
+        return builder.build();
+    }
+}
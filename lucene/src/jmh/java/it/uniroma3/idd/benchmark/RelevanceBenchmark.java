@@ -0,0 +1,65 @@
+package it.uniroma3.idd.benchmark;
+
+import it.uniroma3.idd.evaluation.ResultRelevanceEvaluator;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * ResultRelevanceEvaluator.evaluate su una pagina di 10 risultati (come MetricService):
+ * con la query tokenizzata una volta per pagina e con la tokenizzazione per ogni documento.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelevanceBenchmark {
+
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"nutrition quality", "processed food mortality risk"})
+    public String query;
+
+    private final List<Document> docs = new ArrayList<>();
+
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Document doc = new Document();
+            doc.add(new StoredField("id", "PMC" + i));
+            doc.add(new StoredField("title", "Article " + i + " " + SyntheticCorpus.sentence(random, 6)));
+            doc.add(new StoredField("articleAbstract", SyntheticCorpus.sentence(random, 40)));
+            // Nel layout compatto i paragrafi non sono memorizzati: metà dei documenti li ha, metà no
+            if (i % 2 == 0) doc.add(new StoredField("paragraphs", SyntheticCorpus.sentence(random, 600)));
+            docs.add(doc);
+        }
+    }
+
+
+    @Benchmark
+    public void evaluatePage(Blackhole bh) {
+        Set<String> tokens = ResultRelevanceEvaluator.tokenize(query);
+        for (Document doc : docs) {
+            bh.consume(ResultRelevanceEvaluator.evaluate(tokens, doc, "articoli"));
+        }
+    }
+
+
+    @Benchmark
+    public void evaluatePerDocument(Blackhole bh) {
+        for (Document doc : docs) {
+            bh.consume(ResultRelevanceEvaluator.evaluate(query, doc, "articoli"));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package it.uniroma3.idd.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+
+/**
+ * Corpus sintetico in stile PMC per i benchmark: articoli HTML (indice pari) e JATS XML (indice dispari)
+ * con estensione .html come nel corpus reale, più i JSON di tabelle e immagini dello stesso articolo.
+ * Il contenuto è deterministico (seed fisso), così i risultati sono confrontabili tra release.
+ */
+public final class SyntheticCorpus {
+
+    public static final int ARTICLES = 200;
+    public static final int TABLES_PER_ARTICLE = 3;
+    public static final int IMAGES_PER_ARTICLE = 2;
+
+    // Query usate dai benchmark di ricerca: termini presenti nel vocabolario del corpus.
+    // Niente frasi: fileName (campo di default delle immagini) è indicizzato senza posizioni
+    public static final String[] QUERIES = {
+            "diet", "nutrition quality", "processed food mortality", "title:kidney",
+            "dietary AND patterns", "sugar AND cardiovascular", "protein~", "gene cohort europe"
+    };
+
+    private static final String[] VOCABULARY = {
+            "diet", "dietary", "nutrition", "quality", "processed", "food", "mortality", "risk",
+            "cardiovascular", "sugar", "protein", "fiber", "meal", "kidney", "gene", "cohort",
+            "europe", "patterns", "consumption", "beverages", "analysis", "accuracy", "duration",
+            "ultra", "hamburger", "obesity", "insulin", "glucose", "vitamin", "sodium"
+    };
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private SyntheticCorpus() {}
+
+
+    /* Genera il corpus sotto root/art, root/tab e root/img */
+    public static void generate(Path root) throws IOException {
+        Path art = Files.createDirectories(root.resolve("art"));
+        Path tab = Files.createDirectories(root.resolve("tab"));
+        Path img = Files.createDirectories(root.resolve("img"));
+        Random random = new Random(42);
+
+        for (int i = 0; i < ARTICLES; i++) {
+            String id = "PMC" + i;
+            String article = i % 2 == 0 ? htmlArticle(random, i) : jatsArticle(random, i);
+            Files.writeString(art.resolve(id + ".html"), article, StandardCharsets.UTF_8);
+            MAPPER.writeValue(tab.resolve(id + ".json").toFile(), tables(random, id));
+            MAPPER.writeValue(img.resolve(id + ".json").toFile(), images(random, id));
+        }
+    }
+
+
+    public static Path articlesPath(Path root) { return root.resolve("art"); }
+    public static Path tablesPath(Path root) { return root.resolve("tab"); }
+    public static Path imagesPath(Path root) { return root.resolve("img"); }
+
+
+    /* Frase di n parole casuali del vocabolario */
+    public static String sentence(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return sb.toString();
+    }
+
+
+    private static String htmlArticle(Random random, int i) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<!DOCTYPE html>\n<html><head><title>Title page ").append(i).append("</title>\n");
+        sb.append("<meta name=\"citation_title\" content=\"Article ").append(i).append(' ').append(sentence(random, 6)).append("\">\n");
+        sb.append("<meta name=\"citation_author\" content=\"Anna Rossi").append(i).append("\">");
+        sb.append("<meta name=\"citation_author\" content=\"Kim Lee\">\n");
+        sb.append("<meta name=\"description\" content=\"Abstract ").append(i).append(": ").append(sentence(random, 40)).append("\">\n");
+        sb.append("<meta name=\"citation_publication_date\" content=\"").append(2000 + i % 25).append(' ')
+                .append(MONTHS[i % 12]).append(' ').append(1 + i % 28).append("\">\n");
+        sb.append("</head><body><nav><p>short nav</p></nav>\n<section>\n");
+        for (int p = 0; p < 20; p++) {
+            sb.append("<p>Paragraph ").append(p).append(" &amp; ").append(sentence(random, 60)).append(" <b>bold</b> text</p>\n");
+        }
+        sb.append("</section></body></html>\n");
+        return sb.toString();
+    }
+
+
+    private static String jatsArticle(Random random, int i) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<article><front><article-meta><title-group><article-title>JATS article ").append(i).append(' ')
+                .append(sentence(random, 6)).append("</article-title></title-group>\n");
+        sb.append("<contrib-group><contrib contrib-type=\"author\"><name><surname>Bianchi").append(i)
+                .append("</surname><given-names>M</given-names></name></contrib></contrib-group>\n");
+        sb.append("<pub-date pub-type=\"epub\"><day>").append(1 + i % 28).append("</day><month>").append(1 + i % 12)
+                .append("</month><year>").append(2000 + i % 25).append("</year></pub-date>\n");
+        sb.append("<abstract><p>Abstract ").append(i).append(' ').append(sentence(random, 40)).append("</p></abstract>");
+        sb.append("</article-meta></front>\n<body><sec><title>Intro</title>\n");
+        for (int p = 0; p < 20; p++) {
+            sb.append("<p>Body ").append(p).append(' ').append(sentence(random, 60)).append(" <italic>it</italic>&#x2013;x</p>\n");
+        }
+        sb.append("</sec></body></article>\n");
+        return sb.toString();
+    }
+
+
+    private static List<Map<String, Object>> tables(Random random, String id) {
+        List<Map<String, Object>> tables = new ArrayList<>();
+        for (int t = 0; t < TABLES_PER_ARTICLE; t++) {
+            Map<String, Object> table = new LinkedHashMap<>();
+            table.put("paper_id", id + ".html");
+            table.put("table_id", "T" + t);
+            table.put("caption", "Table " + t + " " + sentence(random, 6));
+            table.put("body", "<table><tr><th>Group</th><th>Value</th></tr><tr><td>" + sentence(random, 2)
+                    + "</td><td>1.5</td></tr><tr><td>a&lt;b &amp; c</td><td>2.7</td></tr></table>");
+            table.put("html_body", "<table><tr><td>x</td></tr></table>");
+            table.put("mentions", List.of("mention " + sentence(random, 8)));
+            table.put("context_paragraphs", List.of("Context " + sentence(random, 25)));
+            tables.add(table);
+        }
+        return tables;
+    }
+
+
+    private static List<Map<String, Object>> images(Random random, String id) {
+        List<Map<String, Object>> images = new ArrayList<>();
+        for (int f = 0; f < IMAGES_PER_ARTICLE; f++) {
+            Map<String, Object> image = new LinkedHashMap<>();
+            image.put("paper_id", id + ".html");
+            image.put("image_id", "F" + f);
+            image.put("caption", "Figure " + f + " " + sentence(random, 6));
+            image.put("alt", sentence(random, 2));
+            image.put("src", "fig" + f + ".jpg");
+            image.put("src_resolved", "https://example.org/" + id + "/fig" + f + ".jpg");
+            image.put("saved_path", "input/img/" + id + "/fig" + f + ".jpg");
+            image.put("link_href", "");
+            image.put("fileName", id);
+            image.put("mentions", List.of());
+            image.put("context_paragraphs", List.of("Image context " + sentence(random, 25)));
+            images.add(image);
+        }
+        return images;
+    }
+}
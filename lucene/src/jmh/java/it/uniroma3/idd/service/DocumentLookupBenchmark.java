@@ -0,0 +1,83 @@
+package it.uniroma3.idd.service;
+
+import it.uniroma3.idd.benchmark.BenchmarkApp;
+import it.uniroma3.idd.benchmark.SyntheticCorpus;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.*;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Lettura di un documento per id come nelle pagine di dettaglio: percorso precedente (TermQuery + TopDocs + documento)
+ * contro Searcher.getDocumentById (seekExact per segmento), con e senza bloom filter sul campo id e cache dei documenti.
+ * Gli id vengono visitati a rotazione: con la cache attiva tutti gli articoli del corpus sintetico ci stanno.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentLookupBenchmark {
+
+    @Param({"false", "true"})
+    public String idBloomFilter;
+
+    // 0 = cache dei documenti disattivata
+    @Param({"0", "4194304"})
+    public String documentCacheBytes;
+
+    private BenchmarkApp app;
+    private Searcher searcher;
+    private DirectoryReader reader;
+    private IndexSearcher indexSearcher;
+
+
+    @State(Scope.Thread)
+    public static class IdCursor {
+        private int next;
+
+        String nextId() {
+            next = (next + 1) % SyntheticCorpus.ARTICLES;
+            return "PMC" + next;
+        }
+    }
+
+
+    @Setup
+    public void setup() throws Exception {
+        app = BenchmarkApp.start(Map.of(
+                "lucene.index.idBloomFilter", idBloomFilter,
+                "lucene.cache.documents.maxBytes", documentCacheBytes));
+        searcher = app.getBean(Searcher.class);
+        reader = DirectoryReader.open(FSDirectory.open(app.getRoot().resolve("index")));
+        indexSearcher = new IndexSearcher(reader);
+    }
+
+
+    @TearDown
+    public void tearDown() throws Exception {
+        reader.close();
+        app.close();
+    }
+
+
+    @Benchmark
+    public Document termQuery(IdCursor cursor) throws Exception {
+        TopDocs hits = indexSearcher.search(new TermQuery(new Term("id", cursor.nextId())), 1);
+        return hits.scoreDocs.length > 0 ? indexSearcher.storedFields().document(hits.scoreDocs[0].doc) : null;
+    }
+
+
+    @Benchmark
+    public Document getDocumentById(IdCursor cursor) throws Exception {
+        return searcher.getDocumentById(cursor.nextId(), "articoli");
+    }
+}
@@ -0,0 +1,96 @@
+package it.uniroma3.idd.service;
+
+import it.uniroma3.idd.benchmark.BenchmarkApp;
+import it.uniroma3.idd.benchmark.SyntheticCorpus;
+import it.uniroma3.idd.dto.SearchResponse;
+import it.uniroma3.idd.dto.SearchResult;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Ricerca su un singolo indice tramite Searcher.search (con e senza cache dei risultati)
+ * e mapping dei risultati nei DTO. Sta nel package service per accedere a mapHitsToDTO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final Map<String, String> INDEX_DIRECTORIES = Map.of(
+            "articoli", "index", "tabelle", "index_tables", "immagini", "index_img");
+
+    @Param({"articoli", "tabelle", "immagini"})
+    public String indexKey;
+
+    // 0 = cache dei risultati disattivata, ogni ricerca arriva all'indice
+    @Param({"0", "16777216"})
+    public String resultCacheBytes;
+
+    private BenchmarkApp app;
+    private Searcher searcher;
+    private List<String> indices;
+
+    private DirectoryReader reader;
+    private TopDocs hits;
+    private List<Document> docs;
+
+
+    @State(Scope.Thread)
+    public static class QueryCursor {
+        private int next;
+
+        String nextQuery() {
+            next = (next + 1) % SyntheticCorpus.QUERIES.length;
+            return SyntheticCorpus.QUERIES[next];
+        }
+    }
+
+
+    @Setup
+    public void setup() throws Exception {
+        app = BenchmarkApp.start(Map.of("lucene.cache.results.maxBytes", resultCacheBytes));
+        searcher = app.getBean(Searcher.class);
+        indices = List.of(indexKey);
+
+        // Una pagina di risultati già letta dall'indice, per misurare il solo mapping
+        reader = DirectoryReader.open(FSDirectory.open(app.getRoot().resolve(INDEX_DIRECTORIES.get(indexKey))));
+        IndexSearcher indexSearcher = new IndexSearcher(reader);
+        hits = indexSearcher.search(app.getBean(QueryCompiler.class).compile("diet", indexKey), 10);
+        StoredFields storedFields = indexSearcher.storedFields();
+        docs = new ArrayList<>();
+        for (ScoreDoc sd : hits.scoreDocs) docs.add(storedFields.document(sd.doc));
+    }
+
+
+    @TearDown
+    public void tearDown() throws Exception {
+        reader.close();
+        app.close();
+    }
+
+
+    @Benchmark
+    public SearchResponse search(QueryCursor cursor) throws Exception {
+        return searcher.search(cursor.nextQuery(), indices, null);
+    }
+
+
+    @Benchmark
+    public List<SearchResult> mapHitsToDTO() {
+        return searcher.mapHitsToDTO(hits, docs, indexKey);
+    }
+}
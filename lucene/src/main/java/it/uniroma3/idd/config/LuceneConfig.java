@@ -27,6 +27,25 @@ public class LuceneConfig {
     @Value("${lucene.index.initialize}")
     private boolean shouldInitializeIndex;
 
+    @Getter
+    @Value("${lucene.index.incremental:true}")
+    private boolean incrementalIndex;
+
+    // true = paragraphs non memorizzato: indice più piccolo, ma valutazione e anteprime degli articoli sul solo abstract
+    @Getter
+    @Value("${lucene.index.compactStoredFields:false}")
+    private boolean compactStoredFields;
+
+    // Index sort degli articoli per data di pubblicazione (più recenti prima)
+    @Getter
+    @Value("${lucene.index.sortByDate:true}")
+    private boolean sortArticlesByDate;
+
+    // Bloom filter sul campo "id": la ricerca per id salta i segmenti che non lo contengono
+    @Getter
+    @Value("${lucene.index.idBloomFilter:false}")
+    private boolean idBloomFilter;
+
     @Getter
     @Value("${lucene.searcher.tresholdMultiplier}")
     private float treasholdMultiplier;
@@ -61,6 +80,28 @@ public class LuceneConfig {
     @Value("${data.img.path}")
     private String imgPath;
 
+    // Pipeline di ingestione (0 parser = un thread per core)
+    @Getter
+    @Value("${lucene.ingest.parserThreads:0}")
+    private int ingestParserThreads;
+
+    @Getter
+    @Value("${lucene.ingest.writerThreads:2}")
+    private int ingestWriterThreads;
+
+    @Getter
+    @Value("${lucene.ingest.queueCapacity:256}")
+    private int ingestQueueCapacity;
+
+    @Getter
+    @Value("${lucene.ingest.ramBufferMB:128}")
+    private double ingestRamBufferMB;
+
+    // Estrazione articoli in streaming (StAX / StreamParser) al posto del DOM jsoup
+    @Getter
+    @Value("${lucene.parser.streaming:true}")
+    private boolean streamingArticleParser;
+
 
     @Bean
     public Analyzer customAnalyzer() {
@@ -0,0 +1,42 @@
+package it.uniroma3.idd.config;
+
+import it.uniroma3.idd.service.SearchStageMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+
+/**
+ * Tempo di rendering Thymeleaf della pagina dei risultati (fase RENDER di SearchStageMetrics): la vista viene
+ * renderizzata tra postHandle e afterCompletion. Registrato da WebConfig sul solo percorso /search.
+ */
+@Component
+public class RenderTimingInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = RenderTimingInterceptor.class.getName() + ".start";
+
+    private final SearchStageMetrics stageMetrics;
+
+
+    @Autowired
+    public RenderTimingInterceptor(SearchStageMetrics stageMetrics) {
+        this.stageMetrics = stageMetrics;
+    }
+
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        if (modelAndView != null && modelAndView.hasView()) request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(START_ATTRIBUTE) instanceof Long start && ex == null) {
+            stageMetrics.recordSince(SearchStageMetrics.Stage.RENDER, SearchStageMetrics.ALL_INDICES, start);
+        }
+    }
+}
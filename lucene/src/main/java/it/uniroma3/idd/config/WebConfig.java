@@ -1,7 +1,9 @@
 package it.uniroma3.idd.config; 
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -15,6 +17,9 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${data.img.path}")
     private String imagesPath; 
 
+    @Autowired
+    private RenderTimingInterceptor renderTimingInterceptor;
+
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
@@ -34,4 +39,11 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/saved_path/**")
             .addResourceLocations(imagesFileUri);
     }
+
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Tempo di rendering della pagina dei risultati
+        registry.addInterceptor(renderTimingInterceptor).addPathPatterns("/search");
+    }
 }
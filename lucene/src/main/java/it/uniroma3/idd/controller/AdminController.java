@@ -0,0 +1,76 @@
+package it.uniroma3.idd.controller;
+
+import it.uniroma3.idd.service.IndexingProgress;
+import it.uniroma3.idd.service.LuceneIndexer;
+import it.uniroma3.idd.service.QueryCompiler;
+import it.uniroma3.idd.service.Searcher;
+import it.uniroma3.idd.utils.LruCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.io.IOException;
+import java.util.Map;
+
+
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final Searcher searcher;
+    private final QueryCompiler queryCompiler;
+    private final LuceneIndexer luceneIndexer;
+
+
+    @Autowired
+    public AdminController(Searcher searcher, QueryCompiler queryCompiler, LuceneIndexer luceneIndexer) {
+        this.searcher = searcher;
+        this.queryCompiler = queryCompiler;
+        this.luceneIndexer = luceneIndexer;
+    }
+
+
+    /** Avanzamento del job di indicizzazione: file analizzati, documenti indicizzati, documenti/s e tempo residuo stimato per indice. */
+    @GetMapping("/indexing")
+    public IndexingProgress.Status indexing() {
+        return luceneIndexer.getIndexingStatus();
+    }
+
+
+    /** Forza il refresh dei reader di tutti gli indici e restituisce la versione corrente di ciascuno. */
+    @PostMapping("/refresh")
+    public Map<String, Long> refresh() throws IOException {
+        return searcher.refresh();
+    }
+
+
+    /** Statistiche della cache dei risultati (hit, miss, eviction, occupazione stimata). */
+    @GetMapping("/cache")
+    public LruCache.Stats cacheStats() {
+        return searcher.getCacheStats();
+    }
+
+
+    /** Statistiche della cache delle query compilate. */
+    @GetMapping("/cache/queries")
+    public LruCache.Stats queryCacheStats() {
+        return queryCompiler.getCacheStats();
+    }
+
+
+    /** Statistiche della cache dei documenti letti per id (pagine di dettaglio). */
+    @GetMapping("/cache/documents")
+    public LruCache.Stats documentCacheStats() {
+        return searcher.getDocumentCacheStats();
+    }
+
+
+    /** Svuota la cache dei risultati. */
+    @DeleteMapping("/cache")
+    public LruCache.Stats clearCache() {
+        searcher.clearCache();
+        return searcher.getCacheStats();
+    }
+}
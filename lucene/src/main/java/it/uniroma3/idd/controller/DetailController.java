@@ -2,6 +2,7 @@ package it.uniroma3.idd.controller;
 
 import it.uniroma3.idd.dto.GetDocumentResponse;
 import it.uniroma3.idd.service.Searcher;
+import it.uniroma3.idd.utils.Parser;
 import org.apache.lucene.document.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -18,6 +19,7 @@ import java.util.Map;
 public class DetailController {
     
     private final Searcher searcher;
+    private final Parser parser;
 
     @Value("${data.img.path}")
     private String dataImgPath;
@@ -27,8 +29,9 @@ public class DetailController {
 
 
     @Autowired
-    public DetailController(Searcher searcher) {
+    public DetailController(Searcher searcher, Parser parser) {
         this.searcher = searcher;
+        this.parser = parser;
     }
 
 
@@ -93,7 +96,9 @@ public class DetailController {
                 String rawHtmlUrl = "/raw_articles/" + articleId + ".html";
                 results.put("URL Articolo Originale", rawHtmlUrl);
                 results.put("Abstract", doc.get("articleAbstract"));
-                results.put("Testo", doc.get("paragraphs"));
+                // Con il layout compatto il corpo non è nell'indice: si rilegge dal file HTML
+                String body = doc.get("paragraphs");
+                results.put("Testo", body != null ? body : parser.readArticleBody(articleId));
                 results.put("Data di Pubblicazione", doc.get("publicationDate"));
                 break;
                 
@@ -157,18 +162,21 @@ public class DetailController {
     }
 
 
+    /** Pagina dell'articolo con l'elenco delle sue tabelle e immagini, lette in un'unica ricerca per indice. */
     @GetMapping("/dettaglio/articoli/{id}")
     public String viewArticle(@PathVariable("id") String id, Model model) {
         try {
-            Document luceneDoc = searcher.getDocumentById(id, "articoli");
-            if (luceneDoc == null) {
+            Searcher.ArticleWithAttachments article = searcher.getArticleWithAttachments(id);
+            if (article == null) {
                 model.addAttribute("error", "Articolo non trovato: " + id);
                 return "error_page";
             }
 
-            GetDocumentResponse responseDTO = mapDocumentToResponse(luceneDoc, "articoli");
+            GetDocumentResponse responseDTO = mapDocumentToResponse(article.article(), "articoli");
             model.addAttribute("document", responseDTO);
             model.addAttribute("indexKey", "articoli");
+            model.addAttribute("tabelle", article.tables().stream().map(doc -> mapDocumentToResponse(doc, "tabelle")).toList());
+            model.addAttribute("immagini", article.images().stream().map(doc -> mapDocumentToResponse(doc, "immagini")).toList());
 
             return "articoli_detail"; // template Thymeleaf per articoli
         } catch (Exception e) {
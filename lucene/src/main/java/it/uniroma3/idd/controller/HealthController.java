@@ -0,0 +1,29 @@
+package it.uniroma3.idd.controller;
+
+import it.uniroma3.idd.service.WarmupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+
+@RestController
+public class HealthController {
+
+    private final WarmupService warmupService;
+
+
+    @Autowired
+    public HealthController(WarmupService warmupService) {
+        this.warmupService = warmupService;
+    }
+
+
+    /** Readiness: 200 a warm-up completato, 503 finché le query di warm-up sono in esecuzione. */
+    @GetMapping("/health")
+    public ResponseEntity<WarmupService.Status> health() {
+        WarmupService.Status status = warmupService.getStatus();
+        return ResponseEntity.status(status.ready() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(status);
+    }
+}
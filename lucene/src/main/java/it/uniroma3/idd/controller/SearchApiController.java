@@ -0,0 +1,76 @@
+package it.uniroma3.idd.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.uniroma3.idd.dto.BulkSearchRequest;
+import it.uniroma3.idd.dto.SearchResponse;
+import it.uniroma3.idd.service.BulkSearchService;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+
+@RestController
+@RequestMapping("/api")
+public class SearchApiController {
+
+    private final BulkSearchService bulkSearchService;
+    private final ObjectMapper objectMapper;
+
+
+    @Autowired
+    public SearchApiController(BulkSearchService bulkSearchService, ObjectMapper objectMapper) {
+        this.bulkSearchService = bulkSearchService;
+        this.objectMapper = objectMapper;
+    }
+
+
+    /**
+     * Singola ricerca JSON con paginazione: corpo {query, indices, topK, page, after}, dove after contiene
+     * i cursori per indice (cursoriSuccessivi) della risposta precedente ("end" per un indice già esaurito).
+     */
+    @PostMapping(value = "/search", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public SearchResponse search(@RequestBody BulkSearchRequest request) throws Exception {
+        bulkSearchService.validate(List.of(request));
+        return bulkSearchService.search(request);
+    }
+
+
+    /**
+     * Ricerca in blocco per le valutazioni offline. Corpo: array JSON di {id, query, indices, topK}.
+     * Risposta: NDJSON, una riga BulkSearchResult per richiesta in ordine di completamento
+     * (position indica la richiesta); gli errori di una singola query sono riportati nella sua riga.
+     */
+    @PostMapping(value = "/search/bulk", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> bulkSearch(@RequestBody List<BulkSearchRequest> requests) {
+        bulkSearchService.validate(requests);
+        StreamingResponseBody body = out -> {
+            try {
+                bulkSearchService.run(requests, result -> {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                    out.flush();
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Ricerca in blocco interrotta", e);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+
+    @ExceptionHandler({IllegalArgumentException.class, ParseException.class})
+    public ResponseEntity<Map<String, String>> badRequest(Exception e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
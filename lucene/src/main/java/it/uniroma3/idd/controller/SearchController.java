@@ -9,15 +9,22 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping; 
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Collections; 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 
 @Controller
 public class SearchController {
         
+        private static final String CURSOR_PARAM_PREFIX = "after_";
+        // Separatore tra dimensione e valore nei parametri "drill" (es. "author:Mario Rossi")
+        private static final char DRILL_SEPARATOR = ':';
+
         private final Searcher searcher;
 
         @Autowired
@@ -43,12 +50,33 @@ public class SearchController {
         public String search(
                         @RequestParam("query") String query,
                         @RequestParam(name = "indices", required = false) List<String> indiceScelti,
+                        @RequestParam(name = "page", defaultValue = "0") int page,
+                        @RequestParam(name = "size", defaultValue = "" + Searcher.DEFAULT_TOP_K) int size,
+                        @RequestParam(name = "totalHitsThreshold", required = false) Integer totalHitsThreshold,
+                        @RequestParam(name = "sort", defaultValue = "RELEVANCE") SearchOptions.SortOrder sort,
+                        @RequestParam(name = "yearFrom", required = false) Integer yearFrom,
+                        @RequestParam(name = "yearTo", required = false) Integer yearTo,
+                        @RequestParam(name = "drill", required = false) List<String> drill,
+                        @RequestParam(name = "facets", defaultValue = "false") boolean facets,
+                        @RequestParam Map<String, String> params,
                         Model model) { 
                 
                 // Assicuriamo che indiceScelti sia sempre nel Model.
                 List<String> selectedIndices = (indiceScelti != null) ? indiceScelti : Collections.emptyList();
                 model.addAttribute("indiceScelti", selectedIndices); 
                 model.addAttribute("query", query); // Passa la query corrente al Model
+                model.addAttribute("pagina", page);
+                model.addAttribute("size", size);
+                model.addAttribute("cursori", Collections.emptyMap());
+                model.addAttribute("sort", sort);
+                model.addAttribute("yearFrom", yearFrom);
+                model.addAttribute("yearTo", yearTo);
+                List<String> selectedFacets = (drill != null) ? drill : Collections.emptyList();
+                model.addAttribute("drill", selectedFacets);
+                // Facet su richiesta ("Mostra filtri") o con un filtro attivo: contarle visita ogni hit e
+                // disattiva la terminazione anticipata (totalHitsThreshold, ordinamento dell'indice)
+                boolean showFacets = facets || !selectedFacets.isEmpty();
+                model.addAttribute("facets", showFacets);
 
                 // Query Vuota
                 if (query == null || query.trim().isEmpty()) {
@@ -66,9 +94,18 @@ public class SearchController {
 
                 try {
                     // Passa i risultati
-                     SearchResponse response = searcher.search(query.trim(), indiceScelti, campo);
+                     // Cursori della pagina precedente: campi nascosti "after_<indice>" del pulsante "Pagina successiva"
+                     Map<String, String> cursori = new HashMap<>();
+                     params.forEach((name, value) -> {
+                             if (name.startsWith(CURSOR_PARAM_PREFIX) && !value.isBlank()) cursori.put(name.substring(CURSOR_PARAM_PREFIX.length()), value);
+                     });
+                     SearchOptions options = new SearchOptions(page, size, cursori, totalHitsThreshold, sort, yearFrom, yearTo,
+                                     showFacets, drillDown(selectedFacets));
+                     SearchResponse response = searcher.search(query.trim(), indiceScelti, campo, options);
                      model.addAttribute("risultatiTotali", response.getRisultati()); 
                      model.addAttribute("metriche", response.getMetrichePerIndice()); 
+                     model.addAttribute("cursori", response.getCursoriSuccessivi());
+                     model.addAttribute("faccette", response.getFaccettePerIndice());
                     // Query e indiceScelti sono già nel Model.
 
                 } catch (ParseException e) {
@@ -82,4 +119,16 @@ public class SearchController {
 
                 return "index"; 
         }
+
+
+        // "dimensione:valore" -> valori scelti per dimensione
+        private static Map<String, List<String>> drillDown(List<String> drill) {
+                Map<String, List<String>> selections = new LinkedHashMap<>();
+                for (String entry : drill) {
+                        int separator = entry.indexOf(DRILL_SEPARATOR);
+                        if (separator <= 0) throw new IllegalArgumentException("Filtro facet non valido: '" + entry + "'");
+                        selections.computeIfAbsent(entry.substring(0, separator), k -> new ArrayList<>()).add(entry.substring(separator + 1));
+                }
+                return selections;
+        }
 }
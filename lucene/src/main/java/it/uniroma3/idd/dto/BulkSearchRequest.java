@@ -0,0 +1,26 @@
+package it.uniroma3.idd.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.Map;
+
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkSearchRequest {
+    private String id;            // facoltativo: riportato nella risposta per riconoscere la richiesta
+    private String query;
+    private List<String> indices;
+    private Integer topK;         // dimensione della pagina, null = Searcher.DEFAULT_TOP_K
+    private Integer page;         // null = prima pagina
+    private Map<String, String> after;  // cursori per indice restituiti dalla pagina precedente (cursoriSuccessivi)
+    private Integer totalHitsThreshold; // conteggio esatto fino a questa soglia, null = lucene.searcher.totalHitsThreshold
+    private SearchOptions.SortOrder sort; // RELEVANCE (default) o NEWEST
+    private Integer yearFrom;     // filtro sull'anno di pubblicazione degli articoli
+    private Integer yearTo;
+    private Boolean facets;       // true = conteggi per facet nella risposta (faccettePerIndice)
+    private Map<String, List<String>> drillDown; // valori delle facet scelti, es. {"author": ["Mario Rossi"]}
+}
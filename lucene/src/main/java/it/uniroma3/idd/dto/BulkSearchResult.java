@@ -0,0 +1,18 @@
+package it.uniroma3.idd.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+/* Una riga dello stream NDJSON: le righe arrivano in ordine di completamento, non di richiesta */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkSearchResult {
+    private int position;             // posizione della richiesta nel batch
+    private String id;
+    private String query;
+    private SearchResponse response;  // null in caso di errore
+    private String error;
+}
@@ -0,0 +1,16 @@
+package it.uniroma3.idd.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+/* Un valore di una facet con il numero di risultati della ricerca che lo contengono */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetValue {
+
+    private String valore;
+    private int conteggio;
+}
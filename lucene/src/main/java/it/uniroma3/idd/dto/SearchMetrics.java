@@ -15,4 +15,14 @@ public class SearchMetrics {
     public double precision;
     public long time;
     public long totalHits;
+    public boolean totalHitsExact; // false se totalHits è un limite inferiore (soglia di conteggio raggiunta)
+    public boolean timedOut; // true se l'indice non ha risposto entro il tempo massimo della richiesta
+    public int slices;           // slice di segmenti eseguite dalla ricerca
+    public long maxSliceMicros;  // slice più lenta
+    public long totalSliceMicros;
+    public boolean cached;       // risultati serviti dalla cache (time è quello della ricerca originale)
+    public String evaluation;    // modalità con cui sono state calcolate ndcg/rr/precision (sync, async, off)
+    public long highlightMicros; // tempo speso per le anteprime evidenziate della pagina
+    public int highlighted;      // risultati con anteprima evidenziata
+    public boolean highlightTruncated; // tempo massimo delle anteprime (lucene.highlight.budgetMs) esaurito prima dell'ultimo risultato
 }
@@ -0,0 +1,50 @@
+package it.uniroma3.idd.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+/* Opzioni di una ricerca oltre al testo della query: paginazione, conteggio, ordinamento, filtri e facet */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchOptions {
+
+    public enum SortOrder { RELEVANCE, NEWEST }
+
+    private int page;                    // pagina per offset (0 = prima)
+    private int size = 10;               // risultati per pagina e per indice
+    private Map<String, String> cursors = new HashMap<>(); // cursori per indice della pagina precedente (searchAfter)
+    private Integer totalHitsThreshold;  // conteggio esatto fino a questa soglia, null = lucene.searcher.totalHitsThreshold
+    private SortOrder sort = SortOrder.RELEVANCE; // NEWEST vale per gli indici con data (articoli), gli altri restano per rilevanza
+    private Integer yearFrom;            // filtro sull'anno di pubblicazione (estremi inclusi, null = aperto)
+    private Integer yearTo;
+    private boolean facets;              // conteggi per facet (anno, autore, articolo) calcolati nella stessa raccolta del top-k
+    private Map<String, List<String>> drillDown = new HashMap<>(); // valori scelti per dimensione: OR nella dimensione, AND tra dimensioni
+
+
+    public static SearchOptions firstPage(int size) {
+        SearchOptions options = new SearchOptions();
+        options.setSize(size);
+        return options;
+    }
+
+
+    public void validate() {
+        if (page < 0) throw new IllegalArgumentException("Il numero di pagina non può essere negativo");
+        if (size < 1) throw new IllegalArgumentException("La dimensione della pagina deve essere almeno 1");
+        if (totalHitsThreshold != null && totalHitsThreshold < 1) throw new IllegalArgumentException("totalHitsThreshold deve essere almeno 1");
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new IllegalArgumentException("Intervallo di anni non valido: " + yearFrom + " > " + yearTo);
+        }
+        if (cursors == null) cursors = new HashMap<>();
+        if (drillDown == null) drillDown = new HashMap<>();
+        drillDown.values().removeIf(Objects::isNull);
+        if (sort == null) sort = SortOrder.RELEVANCE;
+    }
+}
@@ -13,4 +13,10 @@ import java.util.Map;
 public class SearchResponse {
     private Map<String, List<SearchResult>> risultati;
     private Map<String, SearchMetrics> metrichePerIndice = new HashMap<>();
+    private int pagina;
+    private int dimensionePagina;
+    // Cursore della pagina successiva per indice (assente se l'indice non ha altri risultati)
+    private Map<String, String> cursoriSuccessivi = new HashMap<>();
+    // Conteggi per indice e dimensione, presenti solo se richiesti (SearchOptions.facets)
+    private Map<String, Map<String, List<FacetValue>>> faccettePerIndice = new HashMap<>();
 }
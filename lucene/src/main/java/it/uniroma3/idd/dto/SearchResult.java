@@ -16,4 +16,5 @@ public class SearchResult {
     private String snippet; 
     private float score; 
     private String urlDettaglio; 
+    private String snippetHtml; // anteprima evidenziata (HTML con escape, termini in <mark>), null se non disponibile
 }
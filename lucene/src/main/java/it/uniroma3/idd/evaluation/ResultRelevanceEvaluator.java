@@ -2,7 +2,7 @@ package it.uniroma3.idd.evaluation;
 
 import org.apache.lucene.document.Document;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 
 public class ResultRelevanceEvaluator {
@@ -20,9 +20,30 @@ public class ResultRelevanceEvaluator {
     }
 
 
+    /* Campi memorizzati letti da evaluate() per il tipo di indice indicato. */
+    public static Set<String> fieldsFor(String indexKey) {
+        switch (indexKey.toLowerCase()) {
+            case "articoli":
+                return Set.of("title", "articleAbstract", "paragraphs");
+            case "tabelle":
+                return Set.of("caption", "body", "context_paragraphs");
+            case "immagini":
+            case "figure":
+                return Set.of("caption", "context_paragraphs");
+            default:
+                return Set.of("title");
+        }
+    }
+
+
     /* Valuta la rilevanza di un documento Lucene rispetto alla query. */
     public static RelevanceLevel evaluate(String query, Document doc, String indexKey) {
-        Set<String> queryTokens = tokenize(query);
+        return evaluate(tokenize(query), doc, indexKey);
+    }
+
+
+    /* Variante con la query già tokenizzata, per valutare più risultati della stessa ricerca. */
+    public static RelevanceLevel evaluate(Set<String> queryTokens, Document doc, String indexKey) {
         String tipo = indexKey.toLowerCase();
 
         String titolo = "";
@@ -32,17 +53,18 @@ public class ResultRelevanceEvaluator {
         switch (tipo) {
             case "articoli":
                 titolo = doc.get("title");
-                body = doc.get("articleAbstract") + " " + doc.get("paragraphs");
+                // Con il layout compatto paragraphs non è memorizzato: la rilevanza si valuta sul solo abstract
+                body = joinNonNull(doc.get("articleAbstract"), doc.get("paragraphs"));
                 break;
             case "tabelle":
                 titolo = doc.get("caption");
                 // Per le tabelle, il 'body' o il contesto sono ottimi per il partial match
-                body = doc.get("body") + " " + doc.get("contextual_paragraphs");
+                body = joinNonNull(doc.get("body"), doc.get("context_paragraphs"));
                 break;
             case "immagini":
             case "figure": // Gestiamo entrambi i casi per sicurezza
                 titolo = doc.get("caption");
-                body = doc.get("contextual_paragraphs");
+                body = doc.get("context_paragraphs");
                 break;
             default:
                 titolo = doc.get("title");
@@ -69,14 +91,23 @@ public class ResultRelevanceEvaluator {
     /* =======================
        ====== UTILS ==========
        ======================= */
-    private static Set<String> tokenize(String text) {
+    private static String joinNonNull(String first, String second) {
+        if (first == null) return second;
+        if (second == null) return first;
+        return first + " " + second;
+    }
+
+
+    // Tokenizza, rimuove caratteri speciali, converte in lowercase e filtra parole corte (<3 char).
+    // Scansione a singolo passaggio, senza regex né array intermedi.
+    public static Set<String> tokenize(String text) {
         if (text == null) return Set.of();
-        // Tokenizza, rimuove caratteri speciali, converte in lowercase e filtra parole corte (<3 char)
-        return Arrays.stream(text.toLowerCase()
-                        .replaceAll("[^a-z0-9 ]", " ")
-                        .split("\\s+"))
-                .filter(t -> t.length() > 2)
-                .collect(Collectors.toSet());
+        Set<String> tokens = new HashSet<>();
+        forEachToken(text, token -> {
+            tokens.add(token);
+            return true;
+        });
+        return tokens;
     }
 
 
@@ -89,13 +120,29 @@ public class ResultRelevanceEvaluator {
 
     private static boolean partialMatch(String text, Set<String> tokens) {
         if (text == null || text.isEmpty() || tokens.isEmpty()) return false;
-        Set<String> textTokens = tokenize(text);
 
-        long common = tokens.stream()
-                .filter(textTokens::contains)
-                .count();
+        // Rilevante se contiene almeno la metà dei token cercati (minimo 1):
+        // la scansione del corpo si interrompe appena la soglia è raggiunta
+        int needed = Math.max(1, tokens.size() / 2);
+        Set<String> found = new HashSet<>();
+        forEachToken(text, token -> !(tokens.contains(token) && found.add(token) && found.size() >= needed));
+        return found.size() >= needed;
+    }
+
 
-        // Rilevante se contiene almeno la metà dei token cercati (minimo 1)
-        return common >= Math.max(1, tokens.size() / 2);
+    // Invoca visitor per ogni token [a-z0-9]{3,}; si ferma quando visitor restituisce false
+    private static void forEachToken(String text, Predicate<String> visitor) {
+        // toLowerCase sull'intera stringa: alcuni caratteri si espandono (es. 'İ' -> "i̇")
+        String lower = text.toLowerCase();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0, n = lower.length(); i <= n; i++) {
+            char c = i < n ? lower.charAt(i) : ' ';
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                token.append(c);
+                continue;
+            }
+            if (token.length() > 2 && !visitor.test(token.toString())) return;
+            token.setLength(0);
+        }
     }
 }
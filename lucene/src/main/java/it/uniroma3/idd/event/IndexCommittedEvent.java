@@ -0,0 +1,21 @@
+package it.uniroma3.idd.event;
+
+import org.springframework.context.ApplicationEvent;
+
+
+/* Pubblicato dal job di indicizzazione dopo il commit di un indice */
+public class IndexCommittedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String indexKey;
+
+    public IndexCommittedEvent(Object source, String indexKey) {
+        super(source);
+        this.indexKey = indexKey;
+    }
+
+    public String getIndexKey() {
+        return indexKey;
+    }
+}
@@ -0,0 +1,27 @@
+package it.uniroma3.idd.event;
+
+import it.uniroma3.idd.service.Searcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.lang.NonNull;
+
+
+@Component
+public class IndexCommittedListener implements ApplicationListener<IndexCommittedEvent> {
+
+    private final Searcher searcher;
+
+
+    @Autowired
+    public IndexCommittedListener(Searcher searcher) {
+        this.searcher = searcher;
+    }
+
+
+    @Override
+    public void onApplicationEvent(@NonNull IndexCommittedEvent event) {
+        // Aggancia l'indice se è il suo primo commit, altrimenti rende visibili i nuovi documenti
+        searcher.refreshIndex(event.getIndexKey());
+    }
+}
@@ -2,6 +2,7 @@ package it.uniroma3.idd.event;
 
 import it.uniroma3.idd.config.LuceneConfig;
 import it.uniroma3.idd.service.StatsService;
+import it.uniroma3.idd.service.WarmupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Component;
@@ -15,12 +16,14 @@ public class IndexListener implements ApplicationListener<IndexingCompleteEvent>
 
     private final LuceneConfig luceneConfig;
     private final StatsService statsService;
+    private final WarmupService warmupService;
 
 
     @Autowired
-    public IndexListener(LuceneConfig luceneConfig, StatsService statsService) {
+    public IndexListener(LuceneConfig luceneConfig, StatsService statsService, WarmupService warmupService) {
         this.luceneConfig = luceneConfig;
         this.statsService = statsService;
+        this.warmupService = warmupService;
     }
 
 
@@ -47,5 +50,8 @@ public class IndexListener implements ApplicationListener<IndexingCompleteEvent>
         statsService.statsIndex(imageIndexPath, "IMMAGINI");
         
         System.err.println("--------------------------------");
+
+        // Replay delle query di warm-up in background: /health diventa pronto al termine
+        warmupService.startAsync();
     }
 }
@@ -0,0 +1,161 @@
+package it.uniroma3.idd.service;
+
+import it.uniroma3.idd.dto.BulkSearchRequest;
+import it.uniroma3.idd.dto.BulkSearchResult;
+import it.uniroma3.idd.dto.SearchOptions;
+import it.uniroma3.idd.dto.SearchResponse;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+
+/**
+ * Esecuzione di un batch di ricerche per l'API JSON (/api/search/bulk): le richieste girano in parallelo
+ * sugli stessi SearcherManager della pagina web, con al più lucene.bulk.concurrency richieste in volo,
+ * e ogni risultato viene consegnato appena pronto (ordine di completamento).
+ */
+@Service
+public class BulkSearchService {
+
+    private final Searcher searcher;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("bulk-search-", 0).factory());
+
+    // Richieste in volo per batch (0 = numero di core)
+    @Value("${lucene.bulk.concurrency:0}")
+    private int concurrency;
+
+    @Value("${lucene.bulk.maxRequests:10000}")
+    private int maxRequests;
+
+    @Value("${lucene.bulk.maxTopK:1000}")
+    private int maxTopK;
+
+
+    /* Riceve i risultati man mano che sono pronti, sempre dal thread che ha invocato run */
+    @FunctionalInterface
+    public interface ResultWriter {
+        void write(BulkSearchResult result) throws IOException;
+    }
+
+
+    @Autowired
+    public BulkSearchService(Searcher searcher) {
+        this.searcher = searcher;
+    }
+
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+
+    /* Controlli sull'intero batch prima di iniziare lo stream: un batch non valido viene rifiutato per intero */
+    public void validate(List<BulkSearchRequest> requests) {
+        if (requests == null || requests.isEmpty()) throw new IllegalArgumentException("Il batch non contiene richieste");
+        if (requests.size() > maxRequests) {
+            throw new IllegalArgumentException("Il batch contiene " + requests.size() + " richieste (massimo " + maxRequests + ")");
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            BulkSearchRequest request = requests.get(i);
+            if (request == null || request.getQuery() == null || request.getQuery().isBlank()) {
+                throw new IllegalArgumentException("Richiesta " + i + ": query mancante");
+            }
+            if (request.getIndices() == null || request.getIndices().isEmpty()) {
+                throw new IllegalArgumentException("Richiesta " + i + ": nessun indice selezionato");
+            }
+            if (request.getTopK() != null && (request.getTopK() < 1 || request.getTopK() > maxTopK)) {
+                throw new IllegalArgumentException("Richiesta " + i + ": topK deve essere tra 1 e " + maxTopK);
+            }
+            if (request.getPage() != null && request.getPage() < 0) {
+                throw new IllegalArgumentException("Richiesta " + i + ": page non può essere negativo");
+            }
+            if (request.getTotalHitsThreshold() != null && request.getTotalHitsThreshold() < 1) {
+                throw new IllegalArgumentException("Richiesta " + i + ": totalHitsThreshold deve essere almeno 1");
+            }
+            if (request.getYearFrom() != null && request.getYearTo() != null && request.getYearFrom() > request.getYearTo()) {
+                throw new IllegalArgumentException("Richiesta " + i + ": yearFrom maggiore di yearTo");
+            }
+        }
+    }
+
+
+    public void run(List<BulkSearchRequest> requests, ResultWriter writer) throws IOException, InterruptedException {
+        int parallelism = concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+        Semaphore permits = new Semaphore(parallelism);
+        CompletionService<BulkSearchResult> completion = new ExecutorCompletionService<>(executor);
+
+        int delivered = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            // Il permesso si ottiene prima di accodare: in memoria restano al più 'parallelism' risultati non scritti
+            permits.acquire();
+            int position = i;
+            BulkSearchRequest request = requests.get(i);
+            completion.submit(() -> {
+                try {
+                    return execute(position, request);
+                } finally {
+                    permits.release();
+                }
+            });
+            Future<BulkSearchResult> done;
+            while ((done = completion.poll()) != null) {
+                writer.write(resultOf(done));
+                delivered++;
+            }
+        }
+        while (delivered < requests.size()) {
+            writer.write(resultOf(completion.take()));
+            delivered++;
+        }
+    }
+
+
+    /* Singola richiesta (già validata): usata dal batch e da /api/search */
+    public SearchResponse search(BulkSearchRequest request) throws Exception {
+        SearchOptions options = SearchOptions.firstPage(request.getTopK() != null ? request.getTopK() : Searcher.DEFAULT_TOP_K);
+        if (request.getPage() != null) options.setPage(request.getPage());
+        if (request.getAfter() != null) options.setCursors(request.getAfter());
+        options.setTotalHitsThreshold(request.getTotalHitsThreshold());
+        if (request.getSort() != null) options.setSort(request.getSort());
+        options.setYearFrom(request.getYearFrom());
+        options.setYearTo(request.getYearTo());
+        options.setFacets(Boolean.TRUE.equals(request.getFacets()));
+        if (request.getDrillDown() != null) options.setDrillDown(request.getDrillDown());
+        return searcher.search(request.getQuery().trim(), request.getIndices(), null, options);
+    }
+
+
+    private BulkSearchResult execute(int position, BulkSearchRequest request) {
+        try {
+            SearchResponse response = search(request);
+            return new BulkSearchResult(position, request.getId(), request.getQuery(), response, null);
+        } catch (ParseException e) {
+            return new BulkSearchResult(position, request.getId(), request.getQuery(), null, "Errore di sintassi nella query Lucene: " + e.getMessage());
+        } catch (Exception e) {
+            return new BulkSearchResult(position, request.getId(), request.getQuery(), null, e.getMessage());
+        }
+    }
+
+
+    // execute non lancia eccezioni: un'ExecutionException qui è un errore di programmazione
+    private static BulkSearchResult resultOf(Future<BulkSearchResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package it.uniroma3.idd.service;
+
+import it.uniroma3.idd.dto.FacetValue;
+import org.apache.lucene.facet.DrillDownQuery;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Facet sui risultati di ricerca: anno e autori per gli articoli, articolo di provenienza per tabelle e immagini.
+ * I conteggi si ricavano dai doc-values SortedSet scritti da LuceneIndexer (FACETS_CONFIG), a partire dai documenti
+ * raccolti dal FacetsCollector nella stessa passata del top-k; il drill-down restringe la query con una DrillDownQuery.
+ */
+@Component
+public class FacetService {
+
+    // Dimensioni disponibili per indice, nell'ordine in cui vengono mostrate
+    private static final Map<String, List<String>> DIMENSIONS = Map.of(
+            "articoli", List.of(LuceneIndexer.FACET_YEAR, LuceneIndexer.FACET_AUTHOR),
+            "tabelle", List.of(LuceneIndexer.FACET_ARTICLE),
+            "immagini", List.of(LuceneIndexer.FACET_ARTICLE));
+    private static final Set<String> ALL_DIMENSIONS = Set.of(
+            LuceneIndexer.FACET_YEAR, LuceneIndexer.FACET_AUTHOR, LuceneIndexer.FACET_ARTICLE);
+
+    // Valori restituiti per dimensione (quelli con più risultati); l'anno li restituisce tutti, dal più recente
+    @Value("${lucene.facets.topN:10}")
+    private int topN;
+
+    // Ordinali globali dei valori per reader: costruiti all'apertura del reader, rimossi alla sua chiusura
+    private final Map<IndexReader.CacheKey, SortedSetDocValuesReaderState> states = new ConcurrentHashMap<>();
+
+
+    public static List<String> dimensions(String indexKey) {
+        return DIMENSIONS.getOrDefault(indexKey, List.of());
+    }
+
+
+    /*
+     * Restringe la query ai valori scelti per le dimensioni dell'indice: valori della stessa dimensione in OR,
+     * dimensioni diverse in AND. Le dimensioni che l'indice non ha vengono ignorate (come il filtro sugli anni).
+     */
+    public Query drillDown(String indexKey, Query query, Map<String, List<String>> selections) {
+        DrillDownQuery drillDown = null;
+        for (Map.Entry<String, List<String>> selection : selections.entrySet()) {
+            String dimension = selection.getKey();
+            if (!ALL_DIMENSIONS.contains(dimension)) {
+                throw new IllegalArgumentException("Facet sconosciuta: '" + dimension + "' (ammesse: " + String.join(", ", ALL_DIMENSIONS) + ")");
+            }
+            if (!dimensions(indexKey).contains(dimension) || selection.getValue() == null) continue;
+            for (String value : selection.getValue()) {
+                if (value == null || value.isBlank()) continue;
+                if (drillDown == null) drillDown = new DrillDownQuery(LuceneIndexer.FACETS_CONFIG, query);
+                drillDown.add(dimension, value.strip());
+            }
+        }
+        return drillDown != null ? drillDown : query;
+    }
+
+
+    /* Conteggi per dimensione sui documenti raccolti; dimensioni senza valori tra i risultati restano vuote */
+    public Map<String, List<FacetValue>> count(String indexKey, IndexReader reader, FacetsCollector collector) throws IOException {
+        Map<String, List<FacetValue>> result = new LinkedHashMap<>();
+        List<String> dimensions = dimensions(indexKey);
+        if (dimensions.isEmpty()) return result;
+
+        SortedSetDocValuesReaderState state = state(reader);
+        Facets facets = state != null ? new SortedSetDocValuesFacetCounts(state, collector) : null;
+        for (String dimension : dimensions) {
+            List<FacetValue> values = new ArrayList<>();
+            FacetResult facetResult = facets != null ? children(facets, dimension) : null;
+            if (facetResult != null) {
+                for (LabelAndValue labelAndValue : facetResult.labelValues) {
+                    values.add(new FacetValue(labelAndValue.label, labelAndValue.value.intValue()));
+                }
+            }
+            if (dimension.equals(LuceneIndexer.FACET_YEAR)) values.sort(Comparator.comparing(FacetValue::getValore).reversed());
+            result.put(dimension, values);
+        }
+        return result;
+    }
+
+
+    private FacetResult children(Facets facets, String dimension) throws IOException {
+        try {
+            return dimension.equals(LuceneIndexer.FACET_YEAR) ? facets.getAllChildren(dimension) : facets.getTopChildren(topN, dimension);
+        } catch (IllegalArgumentException e) {
+            // Dimensione mai indicizzata in questo reader
+            return null;
+        }
+    }
+
+
+    /* Chiamato da SearcherFactory.newSearcher: il primo conteggio sul nuovo reader non paga la costruzione degli ordinali */
+    public void warm(String indexKey, IndexReader reader) {
+        if (dimensions(indexKey).isEmpty()) return;
+        try {
+            state(reader);
+        } catch (IOException e) {
+            System.err.println("Errore nella preparazione delle facet dell'indice '" + indexKey + "': " + e.getMessage());
+        }
+    }
+
+
+    // null se il reader non contiene ancora campi facet (indice vuoto o costruito prima delle facet)
+    private SortedSetDocValuesReaderState state(IndexReader reader) throws IOException {
+        IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        if (cacheHelper == null) return newState(reader);
+        SortedSetDocValuesReaderState state = states.get(cacheHelper.getKey());
+        if (state != null) return state;
+
+        state = newState(reader);
+        if (state == null) return null;
+        SortedSetDocValuesReaderState previous = states.putIfAbsent(cacheHelper.getKey(), state);
+        if (previous != null) return previous;
+        cacheHelper.addClosedListener(states::remove);
+        return state;
+    }
+
+
+    private static SortedSetDocValuesReaderState newState(IndexReader reader) throws IOException {
+        try {
+            return new DefaultSortedSetDocValuesReaderState(reader, LuceneIndexer.FACETS_CONFIG);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package it.uniroma3.idd.service;
+
+import it.uniroma3.idd.config.LuceneConfig;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.uhighlight.LengthGoalBreakIterator;
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.text.BreakIterator;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Anteprime dei risultati costruite sui passaggi che contengono i termini della query, con i termini evidenziati.
+ * I campi evidenziati hanno gli offset nei postings (LuceneIndexer.TEXT_WITH_OFFSETS): UnifiedHighlighter legge le
+ * posizioni dei termini dall'indice e il testo dai campi memorizzati, senza rianalizzarlo.
+ * Ogni pagina di risultati ha un tempo massimo: allo scadere i risultati rimanenti tengono l'anteprima precalcolata.
+ */
+@Component
+public class HighlightService {
+
+    // Campi da cui si estrae l'anteprima, in ordine di preferenza: vale il primo che contiene un termine della query
+    private static final Map<String, String[]> FIELDS = Map.of(
+            "articoli", new String[]{"articleAbstract", "paragraphs"},
+            "tabelle", new String[]{"context_paragraphs", "caption"},
+            "immagini", new String[]{"context_paragraphs", "caption"});
+    // Con il layout compatto il corpo degli articoli non è memorizzato e non si può evidenziare
+    private static final String[] COMPACT_ARTICLE_FIELDS = {"articleAbstract"};
+
+    private static final String PRE_TAG = "<mark>";
+    private static final String POST_TAG = "</mark>";
+    private static final String ELLIPSIS = "...";
+    // Costruire un BreakIterator di frasi costa più che clonarlo: il highlighter ne chiede uno per campo e documento
+    private static final BreakIterator SENTENCES = BreakIterator.getSentenceInstance(Locale.ROOT);
+
+    private final Analyzer analyzer;
+    private final boolean compactStoredFields;
+
+    @Value("${lucene.highlight.enabled:true}")
+    private boolean enabled;
+
+    // Tempo massimo per evidenziare una pagina di risultati di un indice (0 = nessun limite)
+    @Value("${lucene.highlight.budgetMs:50}")
+    private long budgetMs;
+
+    @Value("${lucene.highlight.passages:1}")
+    private int passages;
+
+    // Lunghezza obiettivo di un passaggio, in caratteri (frasi accorpate o spezzate fino a questa misura)
+    @Value("${lucene.highlight.passageLength:" + LuceneIndexer.SNIPPET_LENGTH + "}")
+    private int passageLength;
+
+
+    @Autowired
+    public HighlightService(Analyzer perFieldAnalyzer, LuceneConfig luceneConfig) {
+        this.analyzer = perFieldAnalyzer;
+        this.compactStoredFields = luceneConfig.isCompactStoredFields();
+    }
+
+
+    /** Anteprima evidenziata: testo semplice per le API e HTML (testo con escape e termini in &lt;mark&gt;) per la pagina. */
+    public record Snippet(String text, String html) {}
+
+    /** Anteprime per hit (null = nessun passaggio trovato o tempo scaduto), risultati evidenziati e tempo impiegato. */
+    public record Highlights(Snippet[] snippets, int highlighted, boolean truncated, long micros) {}
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /*
+     * Un documento alla volta, così il tempo massimo si controlla tra un risultato e l'altro.
+     * Restituisce null se l'evidenziazione è disattivata o l'indice non ha campi da evidenziare.
+     */
+    public Highlights highlight(String indexKey, IndexSearcher searcher, Query query, ScoreDoc[] hits) throws IOException {
+        String[] fields = fieldsFor(indexKey);
+        if (!enabled || fields == null || hits.length == 0) return null;
+
+        long start = System.nanoTime();
+        long deadline = budgetMs > 0 ? start + budgetMs * 1_000_000 : Long.MAX_VALUE;
+        // Passaggi di frasi intere, centrati sul primo termine trovato
+        SnippetHighlighter highlighter = new SnippetHighlighter(UnifiedHighlighter.builder(searcher, analyzer)
+                .withBreakIterator(() -> LengthGoalBreakIterator.createClosestToLength(
+                        (BreakIterator) SENTENCES.clone(), passageLength, 0.5f))
+                .withFormatter(new SnippetFormatter())
+                .withMaxNoHighlightPassages(0));
+        int[] maxPassages = new int[fields.length];
+        Arrays.fill(maxPassages, passages);
+
+        Snippet[] snippets = new Snippet[hits.length];
+        int highlighted = 0;
+        boolean truncated = false;
+        for (int i = 0; i < hits.length; i++) {
+            if (System.nanoTime() > deadline) {
+                truncated = true;
+                break;
+            }
+            Map<String, Object[]> byField = highlighter.snippets(fields, query, new int[]{hits[i].doc}, maxPassages);
+            for (String field : fields) {
+                Object[] values = byField.get(field);
+                if (values != null && values[0] instanceof Snippet snippet) {
+                    snippets[i] = snippet;
+                    highlighted++;
+                    break;
+                }
+            }
+        }
+        return new Highlights(snippets, highlighted, truncated, (System.nanoTime() - start) / 1000);
+    }
+
+
+    private String[] fieldsFor(String indexKey) {
+        String key = indexKey.toLowerCase();
+        return key.equals("articoli") && compactStoredFields ? COMPACT_ARTICLE_FIELDS : FIELDS.get(key);
+    }
+
+
+    // Espone le anteprime come oggetti (Snippet) invece che come stringhe
+    private static final class SnippetHighlighter extends UnifiedHighlighter {
+
+        SnippetHighlighter(Builder builder) {
+            super(builder);
+        }
+
+
+        Map<String, Object[]> snippets(String[] fields, Query query, int[] docIds, int[] maxPassages) throws IOException {
+            return highlightFieldsAsObjects(fields, query, docIds, maxPassages);
+        }
+    }
+
+
+    /* Testo semplice e HTML dalla stessa passata sui passaggi; i passaggi non contigui sono separati da "..." */
+    private static final class SnippetFormatter extends PassageFormatter {
+
+        @Override
+        public Snippet format(Passage[] passages, String content) {
+            StringBuilder text = new StringBuilder();
+            StringBuilder html = new StringBuilder();
+            int pos = 0;
+            for (Passage passage : passages) {
+                if (passage.getStartOffset() > pos) {
+                    text.append(ELLIPSIS);
+                    html.append(ELLIPSIS);
+                }
+                pos = passage.getStartOffset();
+                for (int i = 0; i < passage.getNumMatches(); i++) {
+                    int start = passage.getMatchStarts()[i];
+                    int end = passage.getMatchEnds()[i];
+                    // Termini sovrapposti (es. sinonimi): si evidenzia solo la parte non ancora coperta
+                    if (start < pos) start = pos;
+                    if (end <= start) continue;
+                    append(text, html, content, pos, start);
+                    html.append(PRE_TAG);
+                    append(text, html, content, start, end);
+                    html.append(POST_TAG);
+                    pos = end;
+                }
+                append(text, html, content, pos, Math.max(pos, passage.getEndOffset()));
+                pos = Math.max(pos, passage.getEndOffset());
+            }
+            if (pos < content.length()) {
+                text.append(ELLIPSIS);
+                html.append(ELLIPSIS);
+            }
+            return new Snippet(text.toString().strip(), html.toString().strip());
+        }
+
+
+        private static void append(StringBuilder text, StringBuilder html, String content, int start, int end) {
+            text.append(content, start, end);
+            for (int i = start; i < end; i++) {
+                char c = content.charAt(i);
+                switch (c) {
+                    case '&' -> html.append("&amp;");
+                    case '<' -> html.append("&lt;");
+                    case '>' -> html.append("&gt;");
+                    case '"' -> html.append("&quot;");
+                    case '\'' -> html.append("&#x27;");
+                    default -> html.append(c);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package it.uniroma3.idd.service;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.ReadAdvice;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+
+/**
+ * Apre le directory degli indici secondo la policy di lucene.store.map e scalda i nuovi reader.
+ * Policy per indice: "type=mmap|nio,preload=none|all|postings,stored=ADVICE,postings=ADVICE"
+ * con ADVICE = default|normal|random|sequential (default: quello deciso da Lucene in base al contesto).
+ * preload e advice valgono solo per mmap; i file compound (.cfs) seguono l'advice di default.
+ */
+@Component
+public class IndexDirectoryFactory {
+
+    // Estensioni dei file del codec: campi memorizzati e dati letti dalle query (postings, dizionario dei termini, norms)
+    private static final Set<String> STORED_FIELDS_FILES = Set.of("fdt", "fdx", "fdm");
+    private static final Set<String> POSTINGS_FILES = Set.of("doc", "pos", "pay", "psm", "tim", "tip", "tmd", "nvd", "nvm");
+
+    @Value("#{${lucene.store.map}}")
+    private Map<String, String> storePolicies;
+
+    // Warm-up di postings e norms dei campi di ricerca predefiniti all'apertura di ogni nuovo segmento
+    @Value("${lucene.store.warmup.enabled:true}")
+    private boolean warmupEnabled;
+
+    // Tempo massimo del warm-up per reader (0 = nessun limite)
+    @Value("${lucene.store.warmup.maxMs:10000}")
+    private long warmupMaxMs;
+
+
+    record StorePolicy(String type, String preload, Optional<ReadAdvice> storedAdvice, Optional<ReadAdvice> postingsAdvice) {
+
+        static StorePolicy parse(String indexKey, String policy) {
+            String type = "mmap", preload = "none";
+            Optional<ReadAdvice> stored = Optional.empty(), postings = Optional.empty();
+            for (String option : policy.split(",")) {
+                if (option.isBlank()) continue;
+                String[] kv = option.split("=", 2);
+                String key = kv[0].trim().toLowerCase(Locale.ROOT);
+                String value = kv.length > 1 ? kv[1].trim().toLowerCase(Locale.ROOT) : "";
+                switch (key) {
+                    case "type" -> type = oneOf(indexKey, key, value, "mmap", "nio");
+                    case "preload" -> preload = oneOf(indexKey, key, value, "none", "all", "postings");
+                    case "stored" -> stored = advice(indexKey, key, value);
+                    case "postings" -> postings = advice(indexKey, key, value);
+                    default -> throw new IllegalArgumentException("lucene.store.map['" + indexKey + "']: opzione sconosciuta '" + key + "'");
+                }
+            }
+            return new StorePolicy(type, preload, stored, postings);
+        }
+
+        private static Optional<ReadAdvice> advice(String indexKey, String key, String value) {
+            if (oneOf(indexKey, key, value, "default", "normal", "random", "sequential").equals("default")) return Optional.empty();
+            return Optional.of(ReadAdvice.valueOf(value.toUpperCase(Locale.ROOT)));
+        }
+
+        private static String oneOf(String indexKey, String key, String value, String... allowed) {
+            for (String a : allowed) if (a.equals(value)) return value;
+            throw new IllegalArgumentException("lucene.store.map['" + indexKey + "']: valore '" + value + "' non valido per " + key
+                    + " (ammessi: " + String.join(", ", allowed) + ")");
+        }
+    }
+
+
+    StorePolicy policy(String indexKey) {
+        return StorePolicy.parse(indexKey, storePolicies.getOrDefault(indexKey, "type=mmap"));
+    }
+
+
+    /* Directory per la ricerca: implementazione, preload e read advice secondo la policy dell'indice */
+    public Directory openForSearch(String indexKey, Path path) throws IOException {
+        StorePolicy policy = policy(indexKey);
+        if (policy.type().equals("nio")) {
+            if (!policy.preload().equals("none")) {
+                System.err.println("lucene.store.map['" + indexKey + "']: preload ignorato con type=nio");
+            }
+            return new NIOFSDirectory(path);
+        }
+
+        MMapDirectory directory = new MMapDirectory(path);
+        switch (policy.preload()) {
+            case "all" -> directory.setPreload(MMapDirectory.ALL_FILES);
+            case "postings" -> directory.setPreload((name, context) -> POSTINGS_FILES.contains(extension(name)));
+            default -> directory.setPreload(MMapDirectory.NO_FILES);
+        }
+        directory.setReadAdvice(readAdvice(policy));
+        System.out.println("-> Directory " + indexKey + ": mmap, preload=" + policy.preload()
+                + ", stored=" + policy.storedAdvice().map(Enum::name).orElse("default")
+                + ", postings=" + policy.postingsAdvice().map(Enum::name).orElse("default"));
+        return directory;
+    }
+
+
+    /* Directory per l'indicizzazione: solo l'implementazione, preload e advice non servono al writer */
+    public Directory openForIndexing(String indexKey, Path path) throws IOException {
+        return policy(indexKey).type().equals("nio") ? new NIOFSDirectory(path) : FSDirectory.open(path);
+    }
+
+
+    private static BiFunction<String, IOContext, Optional<ReadAdvice>> readAdvice(StorePolicy policy) {
+        return (name, context) -> {
+            String extension = extension(name);
+            Optional<ReadAdvice> advice = Optional.empty();
+            if (STORED_FIELDS_FILES.contains(extension)) advice = policy.storedAdvice();
+            else if (POSTINGS_FILES.contains(extension)) advice = policy.postingsAdvice();
+            return advice.isPresent() ? advice : MMapDirectory.ADVISE_BY_CONTEXT.apply(name, context);
+        };
+    }
+
+
+    private static String extension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1);
+    }
+
+
+    /*---- WARM-UP ----*/
+
+    /**
+     * Legge postings e norms dei campi indicati per i segmenti di reader assenti in previousReader,
+     * così le prime query non pagano page fault e decodifica a freddo. Invocato da SearcherFactory.newSearcher:
+     * all'avvio scalda l'intero indice prima che l'applicazione sia pronta, dopo un refresh solo i segmenti nuovi.
+     */
+    public void warm(String indexKey, IndexReader reader, IndexReader previousReader, String[] fields) {
+        if (!warmupEnabled || fields == null) return;
+        long start = System.nanoTime();
+        long deadline = warmupMaxMs > 0 ? start + TimeUnit.MILLISECONDS.toNanos(warmupMaxMs) : Long.MAX_VALUE;
+
+        Set<Object> warmed = new HashSet<>();
+        if (previousReader != null) {
+            for (LeafReaderContext leaf : previousReader.leaves()) warmed.add(coreKey(leaf.reader()));
+        }
+
+        int segments = 0;
+        long postings = 0;
+        try {
+            for (LeafReaderContext leaf : reader.leaves()) {
+                LeafReader leafReader = leaf.reader();
+                if (warmed.contains(coreKey(leafReader))) continue;
+                segments++;
+                for (String field : fields) {
+                    postings += warmPostings(leafReader, field, deadline);
+                    warmNorms(leafReader, field);
+                    if (System.nanoTime() > deadline) {
+                        System.err.println("Warm-up " + indexKey + " interrotto dopo " + warmupMaxMs + " ms");
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Errore nel warm-up dell'indice '" + indexKey + "': " + e.getMessage());
+            return;
+        }
+        if (segments > 0) {
+            System.out.println("Warm-up " + indexKey + ": " + segments + " segmenti, " + postings + " postings in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+    }
+
+
+    // Scorre tutti i termini del campo e le relative liste di documenti (con frequenze)
+    private static long warmPostings(LeafReader leafReader, String field, long deadline) throws IOException {
+        Terms terms = leafReader.terms(field);
+        if (terms == null) return 0;
+        long count = 0;
+        int termCount = 0;
+        TermsEnum termsEnum = terms.iterator();
+        PostingsEnum postingsEnum = null;
+        while (termsEnum.next() != null) {
+            postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.FREQS);
+            while (postingsEnum.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                postingsEnum.freq();
+                count++;
+            }
+            // Controllo del tempo ogni 1024 termini
+            if ((++termCount & 1023) == 0 && System.nanoTime() > deadline) break;
+        }
+        return count;
+    }
+
+
+    private static void warmNorms(LeafReader leafReader, String field) throws IOException {
+        NumericDocValues norms = leafReader.getNormValues(field);
+        if (norms == null) return;
+        while (norms.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+            norms.longValue();
+        }
+    }
+
+
+    private static Object coreKey(LeafReader leafReader) {
+        return leafReader.getCoreCacheHelper() != null ? leafReader.getCoreCacheHelper().getKey() : leafReader;
+    }
+}
@@ -0,0 +1,108 @@
+package it.uniroma3.idd.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Avanzamento del job di indicizzazione: stato del job e, per ogni indice, file analizzati,
+ * documenti indicizzati, throughput e stima del tempo residuo (in base ai file ancora da analizzare).
+ * Scritto dai thread della pipeline di ingestione, letto da /admin/indexing.
+ */
+public class IndexingProgress {
+
+    // In ordine di indicizzazione
+    private final Map<String, Tracker> trackers = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile String state = "pending";
+    private volatile String error;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+
+    public record IndexStatus(String state, int filesTotal, int filesParsed, long docsIndexed,
+                              long elapsedMs, double docsPerSec, Long etaMs) {}
+
+    public record Status(String state, long elapsedMs, Map<String, IndexStatus> indices, String error) {}
+
+
+    /* Contatori di un indice; fileParsed/documentIndexed sono chiamati dai thread della pipeline */
+    public static class Tracker {
+        private final int filesTotal;
+        private final AtomicInteger filesParsed = new AtomicInteger();
+        private final AtomicLong docsIndexed = new AtomicLong();
+        private final long startNanos = System.nanoTime();
+        private volatile long endNanos;
+        private volatile String state = "running";
+
+        Tracker(int filesTotal) {
+            this.filesTotal = filesTotal;
+        }
+
+        public void fileParsed() {
+            filesParsed.incrementAndGet();
+        }
+
+        public void documentIndexed() {
+            docsIndexed.incrementAndGet();
+        }
+
+        void finish(String finalState) {
+            endNanos = System.nanoTime();
+            state = finalState;
+        }
+
+        IndexStatus status() {
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            long elapsedNanos = Math.max(1, end - startNanos);
+            int parsed = filesParsed.get();
+            long docs = docsIndexed.get();
+            double docsPerSec = docs * 1e9 / elapsedNanos;
+            // Stima lineare: i file restanti richiedono in media quanto quelli già analizzati
+            Long etaMs = null;
+            if (state.equals("running") && parsed > 0) {
+                etaMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos / parsed * Math.max(0, filesTotal - parsed));
+            }
+            return new IndexStatus(state, filesTotal, parsed, docs, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    Math.round(docsPerSec * 10) / 10.0, etaMs);
+        }
+    }
+
+
+    void jobStarted() {
+        startNanos = System.nanoTime();
+        state = "running";
+    }
+
+
+    void jobFinished(String finalState, String errorMessage) {
+        endNanos = System.nanoTime();
+        error = errorMessage;
+        state = finalState;
+    }
+
+
+    public boolean isFinished() {
+        return !state.equals("pending") && !state.equals("running");
+    }
+
+
+    /* Nuovo tracker per l'indice: sostituisce quello di un'esecuzione precedente */
+    public Tracker start(String indexName, int filesTotal) {
+        Tracker tracker = new Tracker(filesTotal);
+        trackers.put(indexName, tracker);
+        return tracker;
+    }
+
+
+    public Status status() {
+        Map<String, IndexStatus> indices = new LinkedHashMap<>();
+        trackers.forEach((name, tracker) -> indices.put(name, tracker.status()));
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        long elapsedMs = startNanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+        return new Status(state, elapsedMs, indices, error);
+    }
+}
@@ -0,0 +1,149 @@
+package it.uniroma3.idd.service;
+
+import it.uniroma3.idd.config.LuceneConfig;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+
+/**
+ * Pipeline producer/consumer per l'ingestione dei documenti:
+ * i file sorgente vengono distribuiti a un pool di parser, che consegnano i Document
+ * a un pool di writer attraverso una coda limitata. Quando la coda è piena i parser
+ * si bloccano (backpressure), così in memoria restano al più queueCapacity documenti.
+ */
+@Component
+public class IngestionPipeline {
+
+    // Segnale di fine lavoro per i writer (confrontato per identità)
+    private static final Document POISON_PILL = new Document();
+
+    private final LuceneConfig luceneConfig;
+
+
+    /* Trasforma un file sorgente in zero o più Document, consegnandoli uno alla volta al sink */
+    @FunctionalInterface
+    public interface FileParser {
+        void parse(File file, Consumer<Document> sink) throws Exception;
+    }
+
+
+    /* failedFiles: nomi dei file il cui parsing è fallito (i documenti già consegnati restano in coda di scrittura) */
+    public record Result(int files, long documents, long elapsedMs, Set<String> failedFiles) {}
+
+
+    @Autowired
+    public IngestionPipeline(LuceneConfig luceneConfig) {
+        this.luceneConfig = luceneConfig;
+    }
+
+
+    /* tracker riceve l'avanzamento (file analizzati, documenti scritti) mentre la pipeline è in esecuzione */
+    public Result run(String name, File[] files, FileParser fileParser, IndexWriter writer, IndexingProgress.Tracker tracker) throws IOException {
+        int parserThreads = luceneConfig.getIngestParserThreads() > 0
+                ? luceneConfig.getIngestParserThreads()
+                : Runtime.getRuntime().availableProcessors();
+        int writerThreads = Math.max(1, luceneConfig.getIngestWriterThreads());
+        BlockingQueue<Document> queue = new ArrayBlockingQueue<>(Math.max(1, luceneConfig.getIngestQueueCapacity()));
+
+        AtomicInteger nextFile = new AtomicInteger();
+        AtomicLong documents = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Set<String> failedFiles = ConcurrentHashMap.newKeySet();
+        long start = System.currentTimeMillis();
+
+        System.out.println("Ingestione " + name + ": " + files.length + " file, "
+                + parserThreads + " parser, " + writerThreads + " writer, coda " + queue.remainingCapacity());
+
+        ExecutorService writers = Executors.newFixedThreadPool(writerThreads,
+                Thread.ofPlatform().name("ingest-" + name + "-writer-", 0).factory());
+        for (int i = 0; i < writerThreads; i++) {
+            writers.execute(() -> {
+                try {
+                    Document doc;
+                    while ((doc = queue.take()) != POISON_PILL) {
+                        // Dopo un errore si continua a svuotare la coda per non lasciare bloccati i parser
+                        if (failure.get() != null) continue;
+                        try {
+                            writer.addDocument(doc);
+                            documents.incrementAndGet();
+                            tracker.documentIndexed();
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads,
+                Thread.ofPlatform().name("ingest-" + name + "-parser-", 0).factory());
+        for (int i = 0; i < parserThreads; i++) {
+            parsers.execute(() -> {
+                int index;
+                while (failure.get() == null && (index = nextFile.getAndIncrement()) < files.length) {
+                    File file = files[index];
+                    try {
+                        fileParser.parse(file, doc -> enqueue(queue, doc, failure));
+                    } catch (Exception e) {
+                        failedFiles.add(file.getName());
+                        System.err.println("Errore durante il parsing del file " + file.getName() + ": " + e.getMessage());
+                    }
+                    tracker.fileParsed();
+                }
+            });
+        }
+
+        try {
+            parsers.shutdown();
+            parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < writerThreads; i++) queue.put(POISON_PILL);
+            writers.shutdown();
+            writers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            parsers.shutdownNow();
+            writers.shutdownNow();
+            throw new IOException("Ingestione " + name + " interrotta", e);
+        }
+
+        if (failure.get() != null) {
+            throw new IOException("Errore durante l'ingestione " + name, failure.get());
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        System.out.println("Ingestione " + name + " completata: " + documents.get() + " documenti in " + elapsed + " ms"
+                + (failedFiles.isEmpty() ? "" : ", " + failedFiles.size() + " file non letti"));
+        return new Result(files.length, documents.get(), elapsed, Set.copyOf(failedFiles));
+    }
+
+
+    // Inserisce un documento in coda attendendo spazio libero, salvo errori dei writer
+    private void enqueue(BlockingQueue<Document> queue, Document doc, AtomicReference<Throwable> failure) {
+        try {
+            while (failure.get() == null) {
+                if (queue.offer(doc, 100, TimeUnit.MILLISECONDS)) return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parser interrotto", e);
+        }
+        // In caso di errore dei writer il documento viene scartato
+    }
+}
@@ -1,68 +1,158 @@
 package it.uniroma3.idd.service;
 
 import it.uniroma3.idd.config.LuceneConfig;
+import it.uniroma3.idd.event.IndexCommittedEvent;
 import it.uniroma3.idd.event.IndexingCompleteEvent;
 import it.uniroma3.idd.model.Article;
 import it.uniroma3.idd.model.Table;
 import it.uniroma3.idd.model.Image;
+import it.uniroma3.idd.utils.IndexManifest;
 import it.uniroma3.idd.utils.Parser;
-import jakarta.annotation.PostConstruct;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.bloom.BloomFilteringPostingsFormat;
+import org.apache.lucene.codecs.lucene103.Lucene103Codec;
+import org.apache.lucene.codecs.lucene103.Lucene103PostingsFormat;
 import org.apache.lucene.document.*;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.List;
+import java.time.YearMonth;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 @Component
 public class LuceneIndexer {
 
+    // Campo chiave con il nome del file sorgente, usato per aggiornare/eliminare i documenti di un file
+    public static final String SOURCE_FILE_FIELD = "sourceFile";
+    // Lunghezza dell'anteprima salvata nel campo "snippet"
+    public static final int SNIPPET_LENGTH = 150;
+    // Anno (punti, doc-values e valore memorizzato) e data completa in giorni dall'epoca (doc-values) degli articoli
+    public static final String PUBLICATION_YEAR_FIELD = "publicationYear";
+    public static final String PUBLICATION_DAY_FIELD = "publicationEpochDay";
+    // Chiave primaria dei documenti di tutti gli indici
+    public static final String ID_FIELD = "id";
+    // Articolo di provenienza di tabelle e immagini (id dell'articolo): indicizzato, memorizzato e in doc-values ordinati
+    public static final String ARTICLE_REF_FIELD = "fileName";
+    // Dimensioni delle facet (doc-values SortedSet nel campo $facets): anno e autori degli articoli,
+    // articolo di provenienza (fileName) di tabelle e immagini
+    public static final String FACET_YEAR = "year";
+    public static final String FACET_AUTHOR = "author";
+    public static final String FACET_ARTICLE = "article";
+    public static final FacetsConfig FACETS_CONFIG = new FacetsConfig();
+    static {
+        FACETS_CONFIG.setMultiValued(FACET_AUTHOR, true);
+    }
+
+    // Testo memorizzato con gli offset nei postings: UnifiedHighlighter ricava i passaggi senza rianalizzare il testo
+    private static final FieldType TEXT_WITH_OFFSETS = new FieldType(TextField.TYPE_STORED);
+    static {
+        TEXT_WITH_OFFSETS.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        TEXT_WITH_OFFSETS.freeze();
+    }
+
+    private static final Pattern ISO_DATE = Pattern.compile("^(\\d{4})(?:-(\\d{1,2})(?:-(\\d{1,2}))?)?");
+
     private final LuceneConfig luceneConfig;
     private final ApplicationEventPublisher eventPublisher;
     private final Analyzer perFieldAnalyzer;
     private final Parser parser;
+    private final IngestionPipeline ingestionPipeline;
+    private final IndexDirectoryFactory directoryFactory;
+    private final IndexingProgress progress = new IndexingProgress();
+    private final CountDownLatch indexingDone = new CountDownLatch(1);
 
 
     @Autowired
-    public LuceneIndexer(LuceneConfig luceneConfig, ApplicationEventPublisher eventPublisher, Analyzer perFieldAnalyzer, Parser parser) {
+    public LuceneIndexer(LuceneConfig luceneConfig, ApplicationEventPublisher eventPublisher, Analyzer perFieldAnalyzer, Parser parser, IngestionPipeline ingestionPipeline,
+                         IndexDirectoryFactory directoryFactory) {
         this.luceneConfig = luceneConfig;
         this.eventPublisher = eventPublisher;
         this.perFieldAnalyzer = perFieldAnalyzer;
         this.parser = parser;
+        this.ingestionPipeline = ingestionPipeline;
+        this.directoryFactory = directoryFactory;
     }
 
 
-    @PostConstruct
-    public void init() {
+    /*
+     * L'indicizzazione gira in un job in background avviato ad applicazione pronta: il server web risponde subito,
+     * il Searcher si aggancia a ogni indice al suo commit (IndexCommittedEvent) e l'avanzamento è esposto da /admin/indexing.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startIndexing() {
+        Thread.ofPlatform().name("indexing-job").daemon(true).start(this::runIndexing);
+    }
+
+
+    private void runIndexing() {
+        progress.jobStarted();
         try {
             System.out.println("Index initialization in progress...");
             if (luceneConfig.isShouldInitializeIndex()) {
-                System.out.println("Deleting the index directory...");
-                deleteNonEmptyDirectory(Paths.get(luceneConfig.getIndexDirectory())); // Delete the index directory
-                deleteNonEmptyDirectory(Paths.get(luceneConfig.getTableDirectory()));
-                deleteNonEmptyDirectory(Paths.get(luceneConfig.getImgDirectory()));
-                indexArticles(luceneConfig.getIndexDirectory(), Codec.getDefault()); // Initialize the index
-                indexTables(luceneConfig.getTableDirectory(), Codec.getDefault());
-                indexImages(luceneConfig.getImgDirectory(), Codec.getDefault());
+                indexArticles(luceneConfig.getIndexDirectory(), codec()); // Initialize the index
+                publishCommitted("articoli");
+                indexTables(luceneConfig.getTableDirectory(), codec());
+                publishCommitted("tabelle");
+                indexImages(luceneConfig.getImgDirectory(), codec());
+                publishCommitted("immagini");
             }
-            System.out.println("Table Index initialized, publishing event.");
+            progress.jobFinished("done", null);
+            System.out.println("Indicizzazione completata, publishing IndexingComplete event.");
             eventPublisher.publishEvent(new IndexingCompleteEvent(this)); 
             System.out.println("IndexingComplete event published.");
         } catch (Exception e) {
-            throw new RuntimeException("Error initializing the index", e);
+            // Gli indici già aggiornati restano interrogabili; /health resta non pronto (niente warm-up)
+            progress.jobFinished("failed", e.getMessage());
+            System.err.println("Error initializing the index: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            indexingDone.countDown();
         }
     }
 
 
+    // Il Searcher apre (o aggiorna) il reader dell'indice appena committato
+    private void publishCommitted(String name) {
+        System.out.println("Indice " + name + " pronto");
+        eventPublisher.publishEvent(new IndexCommittedEvent(this, name));
+    }
+
+
+    public IndexingProgress.Status getIndexingStatus() {
+        return progress.status();
+    }
+
+
+    /* Attende la fine del job di indicizzazione; false se il tempo scade prima */
+    public boolean awaitIndexing(long timeout, TimeUnit unit) throws InterruptedException {
+        return indexingDone.await(timeout, unit);
+    }
+
+
     /*--------------------------
     -------- UTILS ----------
     ------------------------- */
@@ -90,46 +180,214 @@ public class LuceneIndexer {
     }
 
 
+    // Apre un IndexWriter condiviso dai thread della pipeline di ingestione
+    private IndexWriter openWriter(String name, Path path, Codec codec, boolean create) throws IOException {
+        Directory dir = directoryFactory.openForIndexing(name, path);
+        IndexWriterConfig config = new IndexWriterConfig(perFieldAnalyzer);
+        // CREATE sostituisce l'indice esistente mantenendone generazione e versione del commit:
+        // i reader aperti dal Searcher vedono la ricostruzione come una normale modifica al refresh
+        config.setOpenMode(create ? IndexWriterConfig.OpenMode.CREATE : IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+
+        config.setCodec(codec);
+        config.setRAMBufferSizeMB(luceneConfig.getIngestRamBufferMB());
+        // Articoli dal più recente: la ricerca "più recenti" può fermarsi dopo i primi k di ogni segmento.
+        // Tabelle e immagini raggruppate per articolo: quelle di un articolo sono contigue in ogni segmento
+        if (name.equals("articoli") && luceneConfig.isSortArticlesByDate()) config.setIndexSort(newestFirst());
+        if (name.equals("tabelle") || name.equals("immagini")) config.setIndexSort(byArticle());
+
+        return new IndexWriter(dir, config);
+    }
+
+
+    /*
+     * Codec degli indici. Con lucene.index.idBloomFilter il campo id usa un postings format con bloom filter:
+     * Searcher.getDocumentById scarta i segmenti che non contengono l'id senza consultarne il dizionario dei termini.
+     * Il formato è registrato per campo in ogni segmento, quindi i reader lo riconoscono con il codec predefinito.
+     */
+    private Codec codec() {
+        if (!luceneConfig.isIdBloomFilter()) return Codec.getDefault();
+        PostingsFormat idPostings = new BloomFilteringPostingsFormat(new Lucene103PostingsFormat());
+        return new Lucene103Codec() {
+            @Override
+            public PostingsFormat getPostingsFormatForField(String field) {
+                return field.equals(ID_FIELD) ? idPostings : super.getPostingsFormatForField(field);
+            }
+        };
+    }
+
+
+    // Firma dello schema dei documenti: se cambia, l'indice incrementale viene ricostruito
+    private String documentLayout() {
+        return "v6;compact=" + luceneConfig.isCompactStoredFields() + ";sortByDate=" + luceneConfig.isSortArticlesByDate();
+    }
+
+
+    /* Ordinamento "più recenti prima": usato come index sort degli articoli e dal Searcher, devono coincidere */
+    public static Sort newestFirst() {
+        SortField byDay = new SortField(PUBLICATION_DAY_FIELD, SortField.Type.LONG, true);
+        byDay.setMissingValue(Long.MIN_VALUE); // articoli senza data in fondo
+        return new Sort(byDay);
+    }
+
+
+    /* Ordinamento di tabelle e immagini per articolo di provenienza (index sort) */
+    public static Sort byArticle() {
+        return new Sort(new SortField(ARTICLE_REF_FIELD, SortField.Type.STRING));
+    }
+
+
+    // "2021", "2021-03" o "2021-03-15" (anche con cifre singole) in giorni dall'epoca; mese e giorno mancanti valgono 1
+    static Long epochDayOf(String date) {
+        if (date == null) return null;
+        Matcher m = ISO_DATE.matcher(date.trim());
+        if (!m.find()) return null;
+        int year = Integer.parseInt(m.group(1));
+        int month = m.group(2) != null ? Integer.parseInt(m.group(2)) : 1;
+        int day = m.group(3) != null ? Integer.parseInt(m.group(3)) : 1;
+        if (month < 1 || month > 12) month = 1;
+        YearMonth yearMonth = YearMonth.of(year, month);
+        if (day < 1 || day > yearMonth.lengthOfMonth()) day = 1;
+        return yearMonth.atDay(day).toEpochDay();
+    }
+
+
+    // Traduce i campi facet nei doc-values indicizzati (ordinali per dimensione/valore)
+    private static Document withFacets(Document doc) {
+        try {
+            return FACETS_CONFIG.build(doc);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    // Valori vuoti non sono ammessi come etichetta di una facet
+    private static void addFacet(Document doc, String dimension, String value) {
+        if (value != null && !value.isBlank()) doc.add(new SortedSetDocValuesFacetField(dimension, value.strip()));
+    }
+
+
+    // Anteprima memorizzata per la lista dei risultati
+    private static String snippetOf(String text) {
+        return text.substring(0, Math.min(text.length(), SNIPPET_LENGTH));
+    }
+
+
+    /**
+     * Allinea un indice ai file sorgente. In modalità incrementale confronta i file con il
+     * manifest salvato nell'indice e re-indicizza solo quelli aggiunti o modificati, eliminando
+     * i documenti dei file scomparsi; senza manifest (o con lucene.index.incremental=false)
+     * l'indice viene ricostruito da zero.
+     * Ogni documento riporta il file di provenienza nel campo SOURCE_FILE_FIELD.
+     */
+    private void syncIndex(String name, String Pathdir, Codec codec, File[] files, IngestionPipeline.FileParser fileParser) throws IOException {
+        Path path = Paths.get(Pathdir);
+        String layout = documentLayout();
+        IndexManifest manifest = luceneConfig.isIncrementalIndex() ? IndexManifest.load(path) : null;
+        if (manifest != null && !layout.equals(manifest.getLayout())) {
+            // Schema dei documenti cambiato (es. lucene.index.compactStoredFields): serve una ricostruzione
+            System.out.println("Indice " + name + " costruito con layout '" + manifest.getLayout() + "', richiesto '" + layout + "'");
+            manifest = null;
+        }
+        boolean rebuild = manifest == null;
+
+        if (rebuild) {
+            // Niente cancellazione della directory: un indice ricreato da zero potrebbe avere la stessa
+            // versione di quello rimosso e il refresh dei reader già aperti non lo rileverebbe
+            System.out.println("Ricostruzione completa dell'indice " + name);
+            manifest = IndexManifest.empty(layout);
+        }
+
+        IndexManifest.Diff diff = manifest.update(files);
+        System.out.println("Indice " + name + ": " + diff.changed().size() + " file nuovi o modificati, "
+                + diff.removed().size() + " rimossi, " + diff.unchanged() + " invariati");
+        IndexingProgress.Tracker tracker = progress.start(name, diff.changed().size());
+        if (!rebuild && diff.isEmpty()) {
+            // File solo "toccati" (touch, copia, checkout): si salvano le nuove date, altrimenti vengono riletti a ogni avvio
+            if (diff.manifestChanged()) manifest.save(path);
+            tracker.finish("unchanged");
+            return;
+        }
+
+        try (IndexWriter writer = openWriter(name, path, codec, rebuild)) {
+            for (String removed : diff.removed()) {
+                writer.deleteDocuments(new Term(SOURCE_FILE_FIELD, removed));
+            }
+
+            IngestionPipeline.Result result = ingestionPipeline.run(name, diff.changed().toArray(new File[0]), (file, sink) -> {
+                Term sourceTerm = new Term(SOURCE_FILE_FIELD, file.getName());
+                // La delete precede l'accodamento dei nuovi documenti dello stesso file
+                if (!rebuild) writer.deleteDocuments(sourceTerm);
+                fileParser.parse(file, doc -> {
+                    doc.add(new StringField(SOURCE_FILE_FIELD, file.getName(), Field.Store.NO));
+                    sink.accept(withFacets(doc));
+                });
+            }, writer, tracker);
+            writer.commit();
+            // Nel manifest entrano solo i file indicizzati: quelli non letti verranno riprocessati alla prossima sincronizzazione
+            for (File file : diff.changed()) {
+                if (result.failedFiles().contains(file.getName())) manifest.markFailed(file.getName());
+                else manifest.markIndexed(file.getName());
+            }
+        } catch (IOException | RuntimeException e) {
+            tracker.finish("failed");
+            throw e;
+        }
+        // Il manifest si salva solo dopo il commit: in caso di crash i file vengono riprocessati
+        manifest.save(path);
+        tracker.finish("done");
+    }
+
+
     /*--------------------------
     -------- ARTICOLI ----------
     ------------------------- */
     public void indexArticles(String Pathdir, Codec codec) throws IOException {
-        Path path = Paths.get(Pathdir);
-        Directory dir = FSDirectory.open(path);
-        IndexWriterConfig config = new IndexWriterConfig(perFieldAnalyzer);
+        syncIndex("articoli", Pathdir, codec, parser.listArticleFiles(), (file, sink) -> {
+            Article article = parser.parseArticleFile(file);
+            // Il parser ha già segnalato l'errore: il file viene escluso dal manifest
+            if (article == null) throw new IOException("Articolo non leggibile: " + file.getName());
+            sink.accept(buildArticleDocument(article));
+        });
+    }
 
-        config.setCodec(codec);
 
-        IndexWriter writer = new IndexWriter(dir, config);
-        List<Article> articles = parser.articleParser();
-
-        for (Article article : articles) {
-            Document doc = new Document();
-            String date = article.getPublicationDate();
-            
-            // --- Campi Generici e Testuali ---
-            doc.add(new StringField("id", article.getId(), Field.Store.YES));
-            doc.add(new TextField("title", article.getTitle(), TextField.Store.YES));
-            doc.add(new TextField("authors", String.join(" ", article.getAuthors()), TextField.Store.YES));
-            doc.add(new TextField("paragraphs", String.join(" ", article.getParagraphs()), TextField.Store.YES));
-            doc.add(new TextField("articleAbstract", article.getArticleAbstract(), TextField.Store.YES));
-            doc.add(new StringField("publicationDate", date, Field.Store.YES)); 
-            
-            if (date != null && !date.equals("Unknown Date") && date.length() >= 4) {
-                try {
-                    int year = Integer.parseInt(date.substring(0, 4));
-                    // YEAR
-                    doc.add(new IntPoint("publicationYear", year));
-                    doc.add(new StoredField("publicationYear", year));
-                    doc.add(new StringField("publicationYear_str", String.valueOf(year), Field.Store.NO));
-                } catch (NumberFormatException e) {
-                    System.err.println("Errore nel parsing dell'anno per l'articolo " + article.getId());
-                }
+    public Document buildArticleDocument(Article article) {
+        Document doc = new Document();
+        String date = article.getPublicationDate();
+        
+        // --- Campi Generici e Testuali ---
+        doc.add(new StringField("id", article.getId(), Field.Store.YES));
+        doc.add(new TextField("title", article.getTitle(), TextField.Store.YES));
+        doc.add(new TextField("authors", String.join(" ", article.getAuthors()), TextField.Store.YES));
+        // Con il layout compatto il corpo è solo indicizzato (la pagina di dettaglio lo rilegge dal file sorgente):
+        // senza testo memorizzato non si evidenzia, quindi niente offset
+        String paragraphs = String.join(" ", article.getParagraphs());
+        doc.add(luceneConfig.isCompactStoredFields()
+                ? new TextField("paragraphs", paragraphs, Field.Store.NO)
+                : new Field("paragraphs", paragraphs, TEXT_WITH_OFFSETS));
+        doc.add(new Field("articleAbstract", article.getArticleAbstract(), TEXT_WITH_OFFSETS));
+        doc.add(new StoredField("snippet", snippetOf(article.getArticleAbstract())));
+        doc.add(new StringField("publicationDate", date, Field.Store.YES)); 
+        
+        if (date != null && !date.equals("Unknown Date") && date.length() >= 4) {
+            try {
+                int year = Integer.parseInt(date.substring(0, 4));
+                // YEAR
+                doc.add(new IntPoint(PUBLICATION_YEAR_FIELD, year));
+                doc.add(new StoredField(PUBLICATION_YEAR_FIELD, year));
+                doc.add(new NumericDocValuesField(PUBLICATION_YEAR_FIELD, year));
+                doc.add(new StringField("publicationYear_str", String.valueOf(year), Field.Store.NO));
+                addFacet(doc, FACET_YEAR, String.valueOf(year));
+            } catch (NumberFormatException e) {
+                System.err.println("Errore nel parsing dell'anno per l'articolo " + article.getId());
             }
-            writer.addDocument(doc);
         }
-        writer.commit();
-        writer.close();
+        Long epochDay = epochDayOf(date);
+        if (epochDay != null) doc.add(new NumericDocValuesField(PUBLICATION_DAY_FIELD, epochDay));
+        // Un autore ripetuto nello stesso articolo conta una volta sola
+        new LinkedHashSet<>(article.getAuthors()).forEach(author -> addFacet(doc, FACET_AUTHOR, author));
+        return doc;
     }
 
 
@@ -137,28 +395,25 @@ public class LuceneIndexer {
     -------- TABELLE ----------
     ------------------------- */
     public void indexTables(String Pathdir, Codec codec) throws Exception {
-        Path path = Paths.get(Pathdir);
-        Directory dir = FSDirectory.open(path);
-        IndexWriterConfig config = new IndexWriterConfig(perFieldAnalyzer);
+        syncIndex("tabelle", Pathdir, codec, parser.listTableFiles(), (file, sink) -> {
+            parser.parseTableFile(file, table -> sink.accept(buildTableDocument(table)));
+        });
+    }
 
-        config.setCodec(codec);
 
-        IndexWriter writer = new IndexWriter(dir, config);
-        List<Table> tables = parser.tableParser();
-
-        for (Table table : tables) {
-            Document doc = new Document();
-            doc.add(new StringField("id", table.getId(), Field.Store.YES));
-            doc.add(new TextField("caption", table.getCaption(), Field.Store.YES)); 
-            doc.add(new StoredField("html_table", table.getHtmlBody()));
-            doc.add(new TextField("body", table.getBodyCleaned(), Field.Store.YES)); 
-            doc.add(new TextField("mentions", table.getMentionsString(), Field.Store.YES)); 
-            doc.add(new TextField("context_paragraphs", table.getContext_paragraphsString(), Field.Store.YES)); 
-            doc.add(new StringField("fileName", table.getFileName(), Field.Store.YES)); 
-            writer.addDocument(doc);
-        }
-        writer.commit();
-        writer.close();
+    public Document buildTableDocument(Table table) {
+        Document doc = new Document();
+        doc.add(new StringField("id", table.getId(), Field.Store.YES));
+        doc.add(new Field("caption", table.getCaption(), TEXT_WITH_OFFSETS));
+        doc.add(new StoredField("html_table", table.getHtmlBody()));
+        doc.add(new TextField("body", table.getBodyCleaned(), Field.Store.YES)); 
+        doc.add(new TextField("mentions", table.getMentionsString(), Field.Store.YES)); 
+        doc.add(new Field("context_paragraphs", table.getContext_paragraphsString(), TEXT_WITH_OFFSETS));
+        doc.add(new StoredField("snippet", snippetOf(table.getContext_paragraphsString())));
+        doc.add(new StringField(ARTICLE_REF_FIELD, table.getFileName(), Field.Store.YES)); 
+        doc.add(new SortedDocValuesField(ARTICLE_REF_FIELD, new BytesRef(table.getFileName())));
+        addFacet(doc, FACET_ARTICLE, table.getFileName());
+        return doc;
     }
 
 
@@ -166,30 +421,27 @@ public class LuceneIndexer {
     -------- IMMAGINI ----------
     ------------------------- */
     public void indexImages(String Pathdir, Codec codec) throws Exception {
-        Path path = Paths.get(Pathdir);
-        Directory dir = FSDirectory.open(path);
-        IndexWriterConfig config = new IndexWriterConfig(perFieldAnalyzer);
+        syncIndex("immagini", Pathdir, codec, parser.listImageFiles(), (file, sink) -> {
+            parser.parseImageFile(file, image -> sink.accept(buildImageDocument(image)));
+        });
+    }
 
-        config.setCodec(codec);
 
-        IndexWriter writer = new IndexWriter(dir, config);
-        List<Image> images = parser.imageParser();
-
-        for (Image image : images) {
-            Document doc = new Document();
-            doc.add(new StringField("id", image.getId(), Field.Store.YES));
-            doc.add(new TextField("caption", image.getCaption(), Field.Store.YES));
-            doc.add(new TextField("alt", image.getAlt(), Field.Store.YES));
-            doc.add(new StoredField("src", image.getSrc()));
-            doc.add(new StoredField("src_resolved", image.getSrcResolved()));
-            doc.add(new StoredField("saved_path", image.getSavedPath()));
-            doc.add(new StoredField("link_href", image.getLinkHref()));
-            doc.add(new TextField("mentions", image.getMentionsString(), Field.Store.YES));
-            doc.add(new TextField("context_paragraphs", image.getContext_paragraphsString(), Field.Store.YES));
-            doc.add(new StringField("fileName", image.getFileName(), Field.Store.YES));
-            writer.addDocument(doc);
-        }
-        writer.commit();
-        writer.close();
+    public Document buildImageDocument(Image image) {
+        Document doc = new Document();
+        doc.add(new StringField("id", image.getId(), Field.Store.YES));
+        doc.add(new Field("caption", image.getCaption(), TEXT_WITH_OFFSETS));
+        doc.add(new TextField("alt", image.getAlt(), Field.Store.YES));
+        doc.add(new StoredField("src", image.getSrc()));
+        doc.add(new StoredField("src_resolved", image.getSrcResolved()));
+        doc.add(new StoredField("saved_path", image.getSavedPath()));
+        doc.add(new StoredField("link_href", image.getLinkHref()));
+        doc.add(new TextField("mentions", image.getMentionsString(), Field.Store.YES));
+        doc.add(new Field("context_paragraphs", image.getContext_paragraphsString(), TEXT_WITH_OFFSETS));
+        doc.add(new StoredField("snippet", snippetOf(image.getContext_paragraphsString())));
+        doc.add(new StringField(ARTICLE_REF_FIELD, image.getFileName(), Field.Store.YES));
+        doc.add(new SortedDocValuesField(ARTICLE_REF_FIELD, new BytesRef(image.getFileName())));
+        addFacet(doc, FACET_ARTICLE, image.getFileName());
+        return doc;
     }
 }
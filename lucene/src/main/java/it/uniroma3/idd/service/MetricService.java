@@ -3,45 +3,145 @@ package it.uniroma3.idd.service;
 import it.uniroma3.idd.evaluation.EvaluationMetrics;
 import it.uniroma3.idd.evaluation.ResultRelevanceEvaluator;
 import it.uniroma3.idd.dto.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 @Service
 public class MetricService {
 
-    /* Valuta la ricerca usando le classi di supporto esterne */
-    public SearchMetrics evaluateSearch(TopDocs topDocs, String query, String indexName, long searchTimeMs, IndexSearcher searcher) {
-        
+    /*
+     * Modalità di valutazione della qualità (NDCG, RR, P@10):
+     * sync    = calcolata durante la richiesta (le metriche compaiono nella pagina)
+     * async   = calcolata su un executor separato e registrata solo nelle metriche (search.quality)
+     * sampled = come async, ma solo per una frazione delle richieste (lucene.metrics.sampleRate)
+     * off     = disattivata
+     */
+    public enum EvaluationMode { SYNC, ASYNC, SAMPLED, OFF }
+
+    @Value("${lucene.metrics.evaluation:sync}")
+    private String evaluation;
+
+    @Value("${lucene.metrics.sampleRate:0.1}")
+    private double sampleRate;
+
+    @Value("${lucene.metrics.asyncQueueCapacity:1000}")
+    private int asyncQueueCapacity;
+
+    private EvaluationMode mode;
+    private ThreadPoolExecutor evaluationExecutor;
+
+    private final SearchStageMetrics stageMetrics;
+
+
+    @Autowired
+    public MetricService(SearchStageMetrics stageMetrics) {
+        this.stageMetrics = stageMetrics;
+    }
+
+
+    @PostConstruct
+    public void init() {
+        mode = EvaluationMode.valueOf(evaluation.trim().toUpperCase());
+        // Un solo thread a bassa priorità: se la coda è piena la valutazione viene scartata
+        evaluationExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, asyncQueueCapacity)),
+                Thread.ofPlatform().name("metrics-evaluation").daemon().priority(Thread.MIN_PRIORITY).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        System.out.println("Valutazione metriche di qualità: " + mode);
+    }
+
+
+    @PreDestroy
+    public void destroy() {
+        evaluationExecutor.shutdownNow();
+    }
+
+
+    /* true se almeno una parte delle ricerche viene valutata (servono i campi del ResultRelevanceEvaluator) */
+    public boolean isEvaluationEnabled() {
+        return mode != EvaluationMode.OFF;
+    }
+
+
+    /**
+     * Valuta la ricerca usando le classi di supporto esterne.
+     * docs contiene i documenti già caricati per i risultati (stesso ordine di topDocs.scoreDocs),
+     * condivisi con il mapping dei DTO così ogni hit viene letto una sola volta.
+     */
+    public SearchMetrics evaluateSearch(TopDocs topDocs, List<Document> docs, String query, String indexName, long searchTimeMs) {
+        SearchMetrics metrics = new SearchMetrics();
+        metrics.setIndex(indexName);
+        metrics.setTime(searchTimeMs);
+        metrics.setTotalHits(topDocs.totalHits.value());
+        metrics.setTotalHitsExact(topDocs.totalHits.relation() == TotalHits.Relation.EQUAL_TO);
+
         // Controllo compatibile con tutte le versioni di Lucene
         if (topDocs.scoreDocs.length == 0) {
-            System.out.println("METRICS [" + indexName + "]: Nessun risultato per '" + query + "'");
-            return new SearchMetrics(indexName, 0.0, 0.0, 0.0, searchTimeMs, 0L);
+            metrics.setEvaluation(mode.name().toLowerCase());
+            return metrics;
+        }
+
+        EvaluationMode effective = mode;
+        if (mode == EvaluationMode.SAMPLED && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            effective = EvaluationMode.OFF;
         }
 
+        switch (effective) {
+            case SYNC -> computeQuality(metrics, topDocs, docs, query);
+            case ASYNC, SAMPLED -> {
+                // La valutazione lavora su una copia: l'oggetto restituito può essere già serializzato
+                SearchMetrics copy = new SearchMetrics();
+                copy.setIndex(indexName);
+                copy.setTime(searchTimeMs);
+                copy.setTotalHits(metrics.getTotalHits());
+                copy.setTotalHitsExact(metrics.isTotalHitsExact());
+                try {
+                    evaluationExecutor.execute(() -> computeQuality(copy, topDocs, docs, query));
+                } catch (RejectedExecutionException e) {
+                    System.err.println("METRICS [" + indexName + "]: coda di valutazione piena, valutazione scartata");
+                    effective = EvaluationMode.OFF;
+                }
+            }
+            case OFF -> { }
+        }
+        metrics.setEvaluation(effective.name().toLowerCase());
+        return metrics;
+    }
+
+
+    // Calcola NDCG, RR e precisione e le registra nelle distribuzioni search.quality dell'indice
+    private void computeQuality(SearchMetrics metrics, TopDocs topDocs, List<Document> docs, String query) {
+        String indexName = metrics.getIndex();
         List<String> rankedIds = new ArrayList<>();
         Map<String, Integer> relevanceMap = new HashMap<>();
+        // La query viene tokenizzata una sola volta per tutti i risultati
+        Set<String> queryTokens = ResultRelevanceEvaluator.tokenize(query);
 
         // calcolo la rilevanza per i diversi risultati
-        for (ScoreDoc sd : topDocs.scoreDocs) {
-            try {
-                Document doc = searcher.storedFields().document(sd.doc);
-                String docId = doc.get("id");
-                if(docId == null) docId = String.valueOf(sd.doc);
-
-                int relevance = ResultRelevanceEvaluator.evaluate(query, doc, indexName).value;
+        ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+        for (int i = 0; i < scoreDocs.length; i++) {
+            Document doc = docs.get(i);
+            String docId = doc.get("id");
+            if(docId == null) docId = String.valueOf(scoreDocs[i].doc);
 
-                rankedIds.add(docId);
-                relevanceMap.put(docId, relevance);
+            int relevance = ResultRelevanceEvaluator.evaluate(queryTokens, doc, indexName).value;
 
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            rankedIds.add(docId);
+            relevanceMap.put(docId, relevance);
         }
 
         //calcolo le diverse metriche inerenti alla query dell'utente
@@ -50,28 +150,12 @@ public class MetricService {
         double rr = EvaluationMetrics.reciprocalRank(rankedIds, relevanceMap);
         double precision = EvaluationMetrics.precisionAtK(rankedIds, relevanceMap, k);
 
-        //stampo su console le metriche calcolate
-        System.out.println("=====================================");
-        System.out.println(" Query:   \"" + query + "\"");
-        System.out.println(" Indice:  " + indexName);
-        
-        String totalHitsStr = String.valueOf(topDocs.totalHits);
-        System.out.println(" Results: " + totalHitsStr); 
-        
-        System.out.println(" Time:    " + searchTimeMs + " ms");
-        System.out.printf(" NDCG@%d: %.3f%n", k, ndcg);
-        System.out.printf(" RR:      %.3f%n", rr);
-        System.out.printf(" P@%d:    %.3f%n", k, precision);
-        System.out.println("=====================================");
+        stageMetrics.recordQuality(indexName, "ndcg", ndcg);
+        stageMetrics.recordQuality(indexName, "rr", rr);
+        stageMetrics.recordQuality(indexName, "precision", precision);
 
-        SearchMetrics metrics = new SearchMetrics();
-        metrics.setIndex(indexName);
         metrics.setNdcg(ndcg);
         metrics.setRr(rr);
         metrics.setPrecision(precision);
-        metrics.setTime(searchTimeMs);
-        metrics.setTotalHits(topDocs.totalHits.value());
-
-        return metrics;
     }
 }
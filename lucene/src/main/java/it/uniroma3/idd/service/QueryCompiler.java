@@ -0,0 +1,130 @@
+package it.uniroma3.idd.service;
+
+import it.uniroma3.idd.utils.LruCache;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Compilazione delle query testuali in Query Lucene, per indice.
+ * Pattern e configurazione dei parser (campi di default, analyzer) sono calcolati una volta sola; il
+ * MultiFieldQueryParser, non thread-safe ma economico da creare, si costruisce a ogni parse da quella configurazione.
+ * Le query più frequenti restano in una piccola LRU: le Query Lucene sono immutabili e possono essere condivise tra richieste.
+ */
+@Component
+public class QueryCompiler {
+
+    private static final Pattern YEAR_RANGE = Pattern.compile("publicationYear\\s*:\\s*\\[(\\d{4})\\s+TO\\s+(\\d{4})\\]");
+
+    private static final Map<String, String[]> DEFAULT_FIELDS = Map.of(
+            "articoli", new String[]{"title", "authors", "articleAbstract", "paragraphs", "pubblicationDate"},
+            "tabelle", new String[]{"caption", "body", "mentions", "context_paragraphs"},
+            "immagini", new String[]{"caption", "alt", "mentions", "context_paragraphs", "fileName"}
+    );
+
+    private record QueryKey(String indexKey, String text) {}
+
+    // Configurazione immutabile del parser di un indice, condivisa tra i thread
+    private record ParserConfig(String[] fields, Analyzer analyzer) {
+
+        MultiFieldQueryParser newParser() {
+            return new MultiFieldQueryParser(fields, analyzer);
+        }
+    }
+
+    private final Map<String, ParserConfig> parserConfigs;
+    private final LruCache<QueryKey, Query> queryCache;
+
+
+    @Autowired
+    public QueryCompiler(Analyzer perFieldAnalyzer, @Value("${lucene.cache.queries.maxEntries:1024}") long maxEntries) {
+        Map<String, ParserConfig> configs = new HashMap<>();
+        DEFAULT_FIELDS.forEach((indexKey, fields) -> configs.put(indexKey, new ParserConfig(fields.clone(), perFieldAnalyzer)));
+        this.parserConfigs = Map.copyOf(configs);
+        this.queryCache = new LruCache<>(maxEntries, q -> 1);
+    }
+
+
+    /* Costruisce (o recupera dalla cache) la query per l'indice indicato */
+    public Query compile(String testoRicerca, String indexKey) throws ParseException {
+        String key = indexKey.toLowerCase();
+        if (!queryCache.isEnabled()) return parse(testoRicerca, key);
+
+        QueryKey cacheKey = new QueryKey(key, testoRicerca);
+        Query cached = queryCache.get(cacheKey);
+        if (cached != null) return cached;
+
+        // Le query non valide non vengono memorizzate: l'errore si ripresenta a ogni richiesta
+        Query query = parse(testoRicerca, key);
+        queryCache.put(cacheKey, query);
+        return query;
+    }
+
+
+    public LruCache.Stats getCacheStats() {
+        return queryCache.stats();
+    }
+
+
+    // Campi interrogati dalle query senza prefisso: sono quelli scaldati all'apertura dei segmenti
+    static String[] defaultFields(String indexKey) {
+        return DEFAULT_FIELDS.get(indexKey.toLowerCase());
+    }
+
+
+    /*
+     * Range sull'anno di pubblicazione: Lucene sceglie tra l'albero dei punti (range selettivo che guida la ricerca)
+     * e la verifica sui doc-values dei soli candidati delle altre clausole (range ampio in congiunzione).
+     */
+    static Query yearRange(int min, int max) {
+        return new IndexOrDocValuesQuery(
+                IntPoint.newRangeQuery(LuceneIndexer.PUBLICATION_YEAR_FIELD, min, max),
+                NumericDocValuesField.newSlowRangeQuery(LuceneIndexer.PUBLICATION_YEAR_FIELD, min, max));
+    }
+
+
+    private Query parse(String testoRicerca, String indexKey) throws ParseException {
+        ParserConfig parserConfig = parserConfigs.get(indexKey);
+        if (parserConfig == null) {
+            throw new ParseException("Nessun campo di ricerca predefinito per l'indice: " + indexKey);
+        }
+        List<Query> queries = new ArrayList<>();
+
+        // --- Intercetta range su publicationYear ---
+        Matcher mYear = YEAR_RANGE.matcher(testoRicerca);
+        if (mYear.find()) {
+            int min = Integer.parseInt(mYear.group(1));
+            int max = Integer.parseInt(mYear.group(2));
+            queries.add(yearRange(min, max));
+            testoRicerca = mYear.replaceAll(""); // rimuovo la parte range dalla query testuale
+        }
+
+        // --- Query testuale residua ---
+        if (!testoRicerca.trim().isEmpty()) {
+            // Un parser per chiamata: mantiene stato durante il parse
+            queries.add(parserConfig.newParser().parse(testoRicerca.trim()));
+        }
+
+        // Combina tutte le query
+        if (queries.size() == 1) return queries.get(0);
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (Query q : queries) builder.add(q, BooleanClause.Occur.MUST);
+        return builder.build();
+    }
+}
@@ -0,0 +1,49 @@
+package it.uniroma3.idd.service;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+
+/**
+ * Cursore per la pagina successiva di un indice: versione del reader su cui è stata servita la pagina
+ * (token di SearcherLifetimeManager) e ultimo risultato restituito, da passare a searchAfter.
+ * Per le ricerche ordinate per campo porta anche il valore di ordinamento dell'ultimo risultato (sortValue, altrimenti null).
+ * Nel testo dei risultati viaggia come stringa base64url opaca.
+ */
+record SearchCursor(long readerVersion, int doc, float score, Long sortValue) {
+
+    // Al posto del cursore: l'indice ha esaurito i risultati in una pagina precedente, la pagina è vuota
+    static final String EXHAUSTED = "end";
+
+    static SearchCursor after(long readerVersion, ScoreDoc last) {
+        Long sortValue = last instanceof FieldDoc fieldDoc ? (Long) fieldDoc.fields[0] : null;
+        return new SearchCursor(readerVersion, last.doc, last.score, sortValue);
+    }
+
+
+    ScoreDoc toScoreDoc() {
+        return sortValue == null ? new ScoreDoc(doc, score) : new FieldDoc(doc, score, new Object[]{sortValue});
+    }
+
+
+    String encode() {
+        String raw = readerVersion + ":" + doc + ":" + Integer.toHexString(Float.floatToIntBits(score))
+                + (sortValue == null ? "" : ":" + sortValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+
+    static SearchCursor decode(String text) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(text.trim()), StandardCharsets.US_ASCII).split(":");
+            if (parts.length != 3 && parts.length != 4) throw new IllegalArgumentException();
+            return new SearchCursor(Long.parseLong(parts[0]), Integer.parseInt(parts[1]),
+                    Float.intBitsToFloat(Integer.parseUnsignedInt(parts[2], 16)),
+                    parts.length == 4 ? Long.valueOf(parts[3]) : null);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursore non valido: " + text);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package it.uniroma3.idd.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Tempi delle fasi di una ricerca, in nanosecondi, come istogrammi per fase e indice (timer "search.stage",
+ * tag stage e index) con p50/p95/p99 o, con lucene.metrics.stages.histogramBuckets, con i bucket dell'istogramma;
+ * le metriche di qualità (NDCG, RR, P@10) come distribuzioni "search.quality".
+ * Esposti da Actuator su /actuator/prometheus (formato Prometheus) e /actuator/metrics.
+ */
+@Component
+public class SearchStageMetrics {
+
+    /** Fasi misurate: le prime sei per indice, il rendering della pagina per l'intera richiesta (indice ALL_INDICES). */
+    public enum Stage {
+        PARSE, SEARCH, FETCH, EVALUATE, MAP, HIGHLIGHT, RENDER;
+
+        final String tag = name().toLowerCase();
+    }
+
+    // Valore del tag index per le fasi che riguardano tutti gli indici della richiesta
+    public static final String ALL_INDICES = "all";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry registry;
+    // Un timer per (fase, indice), creato al primo uso: il registry li deduplica ma la ricerca per tag costa di più
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    @Value("${lucene.metrics.stages.enabled:true}")
+    private boolean enabled;
+
+    // true = bucket dell'istogramma (aggregabili tra istanze, percentili con histogram_quantile lato Prometheus)
+    // al posto dei percentili calcolati nell'applicazione: Prometheus espone un timer in uno solo dei due modi
+    @Value("${lucene.metrics.stages.histogramBuckets:false}")
+    private boolean histogramBuckets;
+
+
+    @Autowired
+    public SearchStageMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+
+    public void record(Stage stage, String indexKey, long nanos) {
+        if (!enabled) return;
+        timers.computeIfAbsent(stage.tag + '|' + indexKey, k -> Timer.builder("search.stage")
+                .description("Tempo di una fase della ricerca")
+                .tag("stage", stage.tag)
+                .tag("index", indexKey)
+                .publishPercentiles(histogramBuckets ? new double[0] : PERCENTILES)
+                .publishPercentileHistogram(histogramBuckets)
+                .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+
+    /* Tempo trascorso da start (System.nanoTime()), restituito per chi lo somma ad altre fasi */
+    public long recordSince(Stage stage, String indexKey, long start) {
+        long nanos = System.nanoTime() - start;
+        record(stage, indexKey, nanos);
+        return nanos;
+    }
+
+
+    /* metric: ndcg, rr, precision */
+    public void recordQuality(String indexKey, String metric, double value) {
+        if (!enabled) return;
+        summaries.computeIfAbsent(metric + '|' + indexKey, k -> DistributionSummary.builder("search.quality")
+                .description("Metriche di qualità @10 dei risultati valutati")
+                .tag("metric", metric)
+                .tag("index", indexKey)
+                .publishPercentiles(PERCENTILES)
+                .register(registry))
+                .record(value);
+    }
+}
@@ -1,21 +1,41 @@
 package it.uniroma3.idd.service;
 
 import it.uniroma3.idd.dto.*;
+import it.uniroma3.idd.evaluation.ResultRelevanceEvaluator;
+import it.uniroma3.idd.utils.LruCache;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.*;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollectorManager;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
-import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.*;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -24,141 +44,666 @@ import org.springframework.stereotype.Service;
 @Service
 public class Searcher {
 
-    private final Analyzer analyzer;
-    private final Map<String, IndexSearcher> searcherMap = new HashMap<>();
-    private final Map<String, DirectoryReader> readerMap = new HashMap<>();
+    // Un SearcherManager per indice: ogni ricerca fa acquire/release di uno snapshot coerente
+    private final Map<String, SearcherManager> managerMap = new ConcurrentHashMap<>();
+    private final Map<String, Directory> directoryMap = new ConcurrentHashMap<>();
+    // Searcher delle versioni su cui sono stati emessi cursori di paginazione, tenuti aperti fino a lucene.searcher.cursorMaxAgeSec
+    private final Map<String, SearcherLifetimeManager> lifetimeMap = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("searcher-refresh").daemon().factory());
+    // Fan-out delle ricerche multi-indice
+    private final ExecutorService fanOutExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("search-", 0).factory());
     
     // Servizio per il calcolo delle metriche di qualità della ricerca
     private final MetricService metricService; 
+    private final SegmentSearchExecutor segmentSearchExecutor;
+    private final QueryCompiler queryCompiler;
+    private final IndexDirectoryFactory directoryFactory;
+    private final FacetService facetService;
+    private final HighlightService highlightService;
+    private final SearchStageMetrics stageMetrics;
+
+    // Campi memorizzati letti per la lista dei risultati
+    private static final Map<String, Set<String>> RESULT_FIELDS = Map.of(
+            "articoli", Set.of("id", "title", "snippet"),
+            "tabelle", Set.of("id", "caption", "snippet", "fileName"),
+            "immagini", Set.of("id", "caption", "snippet", "fileName"));
+    private static final Map<String, String> LEGACY_SNIPPET_FIELDS = Map.of(
+            "articoli", "articleAbstract",
+            "tabelle", "context_paragraphs",
+            "immagini", "context_paragraphs");
+
+    // Campi memorizzati letti per le tabelle e le immagini elencate nella pagina di un articolo
+    private static final Map<String, Set<String>> ATTACHMENT_FIELDS = Map.of(
+            "tabelle", Set.of("id", "caption", LuceneIndexer.ARTICLE_REF_FIELD),
+            "immagini", Set.of("id", "caption", "alt", "saved_path", "src_resolved", LuceneIndexer.ARTICLE_REF_FIELD));
+
+    // Risultati per indice della pagina di ricerca
+    public static final int DEFAULT_TOP_K = 10;
+    // Indici con data di pubblicazione: ordinamento NEWEST e filtro sugli anni
+    private static final Set<String> DATED_INDICES = Set.of("articoli");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
 
     @Value("#{${lucene.indices.map}}")
     private Map<String, String> indexPaths;
 
+    // Intervallo di refresh near-real-time dei reader (0 = solo refresh manuale)
+    @Value("${lucene.searcher.refreshIntervalMs:5000}")
+    private long refreshIntervalMs;
+
+    // Paginazione per offset: (pagina + 1) * dimensione non può superare questa soglia, oltre serve il cursore
+    @Value("${lucene.searcher.maxResultWindow:10000}")
+    private int maxResultWindow;
+
+    // Risultati per pagina e indice, con o senza cursore: la raccolta del top-k prealloca una coda di 'size' posti
+    @Value("${lucene.searcher.maxPageSize:1000}")
+    private int maxPageSize;
+
+    // Per quanto tempo un cursore resta valido dopo che il suo reader è stato sostituito da un refresh
+    @Value("${lucene.searcher.cursorMaxAgeSec:600}")
+    private double cursorMaxAgeSec;
+
+    // Conteggio esatto dei risultati fino a questa soglia, poi limite inferiore ("1000+"): sopra la soglia
+    // il collector top-k salta i blocchi di documenti che non possono entrare nei risultati (block-max WAND)
+    @Value("${lucene.searcher.totalHitsThreshold:1000}")
+    private int totalHitsThreshold;
+
+    // Tempo massimo per una richiesta (0 = nessun limite): gli indici che non rispondono in tempo restituiscono risultati vuoti
+    @Value("${lucene.searcher.timeoutMs:2000}")
+    private long searchTimeoutMs;
+
+
+    // Cache dei risultati per (query normalizzata, indice, versione del reader)
+    private LruCache<ResultCacheKey, IndexResult> resultCache;
+    // Documenti letti per id dalle pagine di dettaglio, per (indice, id, versione del reader)
+    private final LruCache<DocumentKey, Document> documentCache;
+
 
     @Autowired
-    public Searcher(Analyzer perFieldAnalyzer, MetricService metricService) {
-        this.analyzer = perFieldAnalyzer;
+    public Searcher(QueryCompiler queryCompiler, MetricService metricService, SegmentSearchExecutor segmentSearchExecutor,
+                    IndexDirectoryFactory directoryFactory, FacetService facetService, HighlightService highlightService,
+                    SearchStageMetrics stageMetrics,
+                    @Value("${lucene.cache.results.maxBytes:16777216}") long resultCacheMaxBytes,
+                    @Value("${lucene.cache.documents.maxBytes:4194304}") long documentCacheMaxBytes) {
+        this.queryCompiler = queryCompiler;
+        this.directoryFactory = directoryFactory;
+        this.facetService = facetService;
+        this.highlightService = highlightService;
+        this.stageMetrics = stageMetrics;
         this.metricService = metricService;
+        this.segmentSearchExecutor = segmentSearchExecutor;
+        this.resultCache = new LruCache<>(resultCacheMaxBytes, Searcher::estimateWeight);
+        this.documentCache = new LruCache<>(documentCacheMaxBytes, Searcher::estimateDocumentWeight);
     }
 
 
     @PostConstruct
-    public void init() throws IOException {
+    public void init() {
         System.out.println("Inizializzazione dinamica degli Index Searcher...");
-        for (Map.Entry<String, String> entry : indexPaths.entrySet()) {
-            String indexKey = entry.getKey();
-            String path = entry.getValue();
+        for (String indexKey : indexPaths.keySet()) {
+            if (!attach(indexKey)) {
+                System.out.println("-> Indice " + indexKey + " non ancora creato: verrà caricato al primo commit");
+            }
+        }
 
-            try {
-                DirectoryReader reader = DirectoryReader.open(FSDirectory.open(Paths.get(path)));
-                IndexSearcher searcher = new IndexSearcher(reader);
-                readerMap.put(indexKey, reader);
-                searcherMap.put(indexKey, searcher);
-                System.out.println("-> Caricato indice: " + indexKey + " da: " + path);
-            } catch (IOException e) {
-                System.err.println("Errore nel caricamento dell'indice '" + indexKey + "' dal percorso: " + path + ". " + e.getMessage());
+        if (refreshIntervalMs > 0) {
+            refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+
+    /*
+     * Apre il SearcherManager dell'indice se la directory contiene già un commit.
+     * Chiamato all'avvio, dal refresh periodico e a ogni IndexCommittedEvent finché l'indice non è caricato.
+     */
+    private synchronized boolean attach(String indexKey) {
+        if (managerMap.containsKey(indexKey)) return true;
+        String path = indexPaths.get(indexKey);
+        if (path == null) return false;
+
+        Directory directory = null;
+        try {
+            if (!Files.isDirectory(Paths.get(path))) return false;
+            directory = directoryFactory.openForSearch(indexKey, Paths.get(path));
+            if (!DirectoryReader.indexExists(directory)) {
+                directory.close();
+                return false;
+            }
+            SearcherManager manager = new SearcherManager(directory, new SearcherFactory() {
+                @Override
+                public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+                    // I segmenti nuovi vengono scaldati prima che il searcher sia visibile alle ricerche
+                    directoryFactory.warm(indexKey, reader, previousReader, QueryCompiler.defaultFields(indexKey));
+                    facetService.warm(indexKey, reader);
+                    return segmentSearchExecutor.newSearcher(reader, indexKey);
+                }
+            });
+            // Dopo un refresh le voci in cache delle versioni precedenti non verranno più usate
+            manager.addListener(new ReferenceManager.RefreshListener() {
+                @Override
+                public void beforeRefresh() { }
+
+                @Override
+                public void afterRefresh(boolean didRefresh) {
+                    if (didRefresh) {
+                        resultCache.removeIf(key -> key.indexKey().equals(indexKey));
+                        documentCache.removeIf(key -> key.indexKey().equals(indexKey));
+                    }
+                }
+            });
+            directoryMap.put(indexKey, directory);
+            lifetimeMap.put(indexKey, new SearcherLifetimeManager());
+            managerMap.put(indexKey, manager);
+            System.out.println("-> Caricato indice: " + indexKey + " da: " + path);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Errore nel caricamento dell'indice '" + indexKey + "' dal percorso: " + path + ". " + e.getMessage());
+            if (directory != null) {
+                try { directory.close(); } catch (IOException ignored) { }
             }
+            return false;
         }
     }
 
 
     @PreDestroy
     public void destroy() {
-        System.out.println("Chiusura di tutti i DirectoryReader...");
-        for (DirectoryReader reader : readerMap.values()) {
-            try { reader.close(); } catch (IOException e) { System.err.println("Errore chiusura reader: " + e.getMessage()); }
+        System.out.println("Chiusura di tutti i SearcherManager...");
+        refresher.shutdownNow();
+        fanOutExecutor.shutdown();
+        for (SearcherLifetimeManager lifetime : lifetimeMap.values()) {
+            try { lifetime.close(); } catch (IOException e) { System.err.println("Errore chiusura cursori: " + e.getMessage()); }
+        }
+        for (SearcherManager manager : managerMap.values()) {
+            try { manager.close(); } catch (IOException e) { System.err.println("Errore chiusura searcher: " + e.getMessage()); }
+        }
+        for (Directory directory : directoryMap.values()) {
+            try { directory.close(); } catch (IOException e) { System.err.println("Errore chiusura directory: " + e.getMessage()); }
+        }
+    }
+
+
+    /**
+     * Forza il refresh di tutti gli indici, attendendo l'apertura dei nuovi reader.
+     * @return versione del reader corrente per ciascun indice
+     */
+    public Map<String, Long> refresh() throws IOException {
+        for (String indexKey : indexPaths.keySet()) attach(indexKey);
+        Map<String, Long> versions = new TreeMap<>();
+        for (Map.Entry<String, SearcherManager> entry : managerMap.entrySet()) {
+            SearcherManager manager = entry.getValue();
+            manager.maybeRefreshBlocking();
+            IndexSearcher searcher = manager.acquire();
+            try {
+                versions.put(entry.getKey(), ((DirectoryReader) searcher.getIndexReader()).getVersion());
+            } finally {
+                manager.release(searcher);
+            }
+        }
+        pruneCursors();
+        return versions;
+    }
+
+
+    // Refresh periodico non bloccante: se un refresh è già in corso viene saltato
+    private void refreshQuietly() {
+        for (String indexKey : indexPaths.keySet()) attach(indexKey);
+        for (Map.Entry<String, SearcherManager> entry : managerMap.entrySet()) {
+            try {
+                entry.getValue().maybeRefresh();
+            } catch (Exception e) {
+                System.err.println("Errore nel refresh dell'indice '" + entry.getKey() + "': " + e.getMessage());
+            }
+        }
+        pruneCursors();
+    }
+
+
+    // Chiude i searcher dei cursori sostituiti da più di cursorMaxAgeSec: le pagine successive vanno richieste da capo
+    private void pruneCursors() {
+        for (Map.Entry<String, SearcherLifetimeManager> entry : lifetimeMap.entrySet()) {
+            try {
+                entry.getValue().prune(new SearcherLifetimeManager.PruneByAge(cursorMaxAgeSec));
+            } catch (IOException e) {
+                System.err.println("Errore nella chiusura dei cursori dell'indice '" + entry.getKey() + "': " + e.getMessage());
+            }
+        }
+    }
+
+
+    /* Aggancia l'indice al primo commit, altrimenti ne aggiorna il reader (attendendo l'apertura) */
+    public void refreshIndex(String indexKey) {
+        if (!attach(indexKey)) return;
+        try {
+            managerMap.get(indexKey).maybeRefreshBlocking();
+            pruneCursors();
+        } catch (IOException e) {
+            System.err.println("Errore nel refresh dell'indice '" + indexKey + "': " + e.getMessage());
         }
     }
 
 
     public SearchResponse search(String queryText, List<String> indiceScelti, String campoScelto) throws Exception {
+        return search(queryText, indiceScelti, campoScelto, SearchOptions.firstPage(DEFAULT_TOP_K));
+    }
+
+
+    /**
+     * Pagina di risultati per indice: page/size (offset, limitato da lucene.searcher.maxResultWindow)
+     * oppure, per gli indici con un cursore in options.getCursors(), la pagina che segue il cursore (searchAfter,
+     * costo costante a qualunque profondità). La risposta riporta il cursore della pagina successiva di ogni indice;
+     * al posto del cursore, "end" (SearchCursor.EXHAUSTED) indica un indice già esaurito, che restituisce una pagina vuota.
+     * Ordinamento per data e filtro sugli anni valgono per gli indici datati (DATED_INDICES), gli altri li ignorano;
+     * drill-down e conteggi delle facet riguardano le sole dimensioni dell'indice (FacetService.dimensions).
+     */
+    public SearchResponse search(String queryText, List<String> indiceScelti, String campoScelto, SearchOptions options) throws Exception {
+        options.validate();
+        if (options.getSize() > maxPageSize) {
+            throw new IllegalArgumentException("La dimensione della pagina non può superare " + maxPageSize + " risultati");
+        }
         SearchResponse response = new SearchResponse();
         Map<String, List<SearchResult>> risultatiFinali = new HashMap<>();
 
-
+        // Le query si costruiscono prima del fan-out, così gli errori di sintassi arrivano subito al controller
+        Map<String, Query> queries = new LinkedHashMap<>();
         for (String indexKey : indiceScelti) {
-            IndexSearcher currentSearcher = searcherMap.get(indexKey);
-            if (currentSearcher == null) {
+            if (!managerMap.containsKey(indexKey)) {
                 System.err.println("Indice non trovato o non caricato: " + indexKey);
                 continue;
             }
+            if (!options.getCursors().containsKey(indexKey) && (long) (options.getPage() + 1) * options.getSize() > maxResultWindow) {
+                throw new IllegalArgumentException("Pagina oltre i primi " + maxResultWindow + " risultati: usare il cursore della pagina precedente");
+            }
+            long parseStart = System.nanoTime();
+            Query query = withYearFilter(queryCompiler.compile(queryText, indexKey), indexKey, options);
+            queries.put(indexKey, facetService.drillDown(indexKey, query, options.getDrillDown()));
+            stageMetrics.recordSince(SearchStageMetrics.Stage.PARSE, indexKey, parseStart);
+        }
+
+        // Ogni indice viene interrogato in un virtual thread dedicato
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchTimeoutMs);
+        Map<String, Future<IndexResult>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, Query> entry : queries.entrySet()) {
+            futures.put(entry.getKey(), fanOutExecutor.submit(() -> searchIndex(entry.getKey(), entry.getValue(), queryText, options)));
+        }
+
+        for (Map.Entry<String, Future<IndexResult>> entry : futures.entrySet()) {
+            String indexKey = entry.getKey();
+            Future<IndexResult> future = entry.getValue();
+            try {
+                IndexResult result = searchTimeoutMs > 0
+                        ? future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                        : future.get();
+                response.getMetrichePerIndice().put(indexKey, result.metrics());
+                risultatiFinali.put(indexKey, result.results());
+                if (result.nextCursor() != null) response.getCursoriSuccessivi().put(indexKey, result.nextCursor());
+                if (result.facets() != null) response.getFaccettePerIndice().put(indexKey, result.facets());
+            } catch (TimeoutException e) {
+                // Nessuna interruzione: un interrupt durante l'I/O chiuderebbe i canali condivisi dell'indice.
+                // Il task termina in background e rilascia il proprio searcher.
+                future.cancel(false);
+                System.err.println("Timeout della ricerca sull'indice '" + indexKey + "' dopo " + searchTimeoutMs + " ms");
+                SearchMetrics timedOut = new SearchMetrics();
+                timedOut.setIndex(indexKey);
+                timedOut.setTime(searchTimeoutMs);
+                timedOut.setTimedOut(true);
+                response.getMetrichePerIndice().put(indexKey, timedOut);
+                risultatiFinali.put(indexKey, new ArrayList<>());
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        response.setRisultati(risultatiFinali);
+        response.setPagina(options.getPage());
+        response.setDimensionePagina(options.getSize());
+        return response;
+    }
+
+
+    private record IndexResult(List<SearchResult> results, SearchMetrics metrics, String nextCursor, Map<String, List<FacetValue>> facets) {}
+
+    private record DocumentKey(String indexKey, String id, long readerVersion) {}
+
+    // Top-k e, se richiesti, documenti per il conteggio delle facet raccolti nella stessa passata
+    private record Hits(TopDocs topDocs, FacetsCollector facets) {}
+
+    // La versione del reader fa parte della chiave: un refresh rende obsolete le voci precedenti
+    private record ResultCacheKey(String query, String indexKey, long readerVersion, int page, int size, int totalHitsThreshold,
+                                  SearchOptions.SortOrder sort, Integer yearFrom, Integer yearTo,
+                                  boolean facets, Map<String, List<String>> drillDown) {}
+
+
+    // Filtro sugli anni come clausola FILTER (non influisce sul punteggio), solo per gli indici con l'anno di pubblicazione
+    private static Query withYearFilter(Query query, String indexKey, SearchOptions options) {
+        if (!DATED_INDICES.contains(indexKey) || (options.getYearFrom() == null && options.getYearTo() == null)) return query;
+        int from = options.getYearFrom() != null ? options.getYearFrom() : Integer.MIN_VALUE;
+        int to = options.getYearTo() != null ? options.getYearTo() : Integer.MAX_VALUE;
+        return new BooleanQuery.Builder()
+                .add(query, BooleanClause.Occur.MUST)
+                .add(QueryCompiler.yearRange(from, to), BooleanClause.Occur.FILTER)
+                .build();
+    }
+
+
+    // null = ordinamento per rilevanza
+    private static Sort sortFor(String indexKey, SearchOptions.SortOrder order) {
+        return order == SearchOptions.SortOrder.NEWEST && DATED_INDICES.contains(indexKey) ? LuceneIndexer.newestFirst() : null;
+    }
+
+
+    /*
+     * Top-k per rilevanza o per data. Con l'indice ordinato per data (lucene.index.sortByDate) l'ordinamento
+     * NEWEST coincide con quello dei segmenti: raggiunta la soglia di conteggio la raccolta si ferma in anticipo.
+     * I punteggi della pagina ordinata per data vengono calcolati a parte, solo per i risultati restituiti.
+     */
+    private static CollectorManager<? extends Collector, ? extends TopDocs> topDocsManager(Sort sort, int n, ScoreDoc after, int threshold) {
+        if (sort == null) return new TopScoreDocCollectorManager(n, after, threshold);
+        return new TopFieldCollectorManager(sort, n, (FieldDoc) after, threshold);
+    }
+
+
+    /*
+     * Con le facet il FacetsCollector affianca il collector del top-k in un'unica passata sui documenti.
+     * Le facet richiedono tutti i risultati: in quel caso la raccolta non salta i blocchi non competitivi.
+     */
+    private static Hits collectHits(IndexSearcher searcher, Query query, Sort sort, int n, ScoreDoc after, int threshold,
+                                    boolean facets) throws IOException {
+        // Mai più posti in coda dei documenti dell'indice (almeno uno: i collector non accettano 0)
+        n = Math.max(1, Math.min(n, searcher.getIndexReader().maxDoc()));
+        CollectorManager<? extends Collector, ? extends TopDocs> topManager = topDocsManager(sort, n, after, threshold);
+        if (!facets) return new Hits(searcher.search(query, topManager), null);
+        Object[] results = searcher.search(query, new MultiCollectorManager(topManager, new FacetsCollectorManager()));
+        return new Hits((TopDocs) results[0], (FacetsCollector) results[1]);
+    }
+
+
+    private Map<String, List<FacetValue>> countFacets(String indexKey, IndexSearcher searcher, Hits hits) throws IOException {
+        return hits.facets() != null ? facetService.count(indexKey, searcher.getIndexReader(), hits.facets()) : null;
+    }
+
+
+    // Ricerca, metriche e mapping dei risultati su un singolo indice
+    private IndexResult searchIndex(String indexKey, Query query, String queryText, SearchOptions options) throws Exception {
+        int threshold = options.getTotalHitsThreshold() != null ? options.getTotalHitsThreshold() : totalHitsThreshold;
+        Sort sort = sortFor(indexKey, options.getSort());
+        String cursor = options.getCursors().get(indexKey);
+        boolean facets = options.isFacets() && !FacetService.dimensions(indexKey).isEmpty();
+        if (SearchCursor.EXHAUSTED.equals(cursor)) return exhausted(indexKey);
+        if (cursor != null) {
+            return searchAfterCursor(indexKey, query, queryText, options.getSize(), sort, threshold, facets, SearchCursor.decode(cursor));
+        }
+
+        SearcherManager manager = managerMap.get(indexKey);
+        IndexSearcher currentSearcher = manager.acquire();
+        try {
+            ResultCacheKey cacheKey = new ResultCacheKey(normalizeQuery(queryText), indexKey,
+                    ((DirectoryReader) currentSearcher.getIndexReader()).getVersion(), options.getPage(), options.getSize(), threshold,
+                    options.getSort(), options.getYearFrom(), options.getYearTo(), facets, Map.copyOf(options.getDrillDown()));
+            if (resultCache.isEnabled()) {
+                IndexResult cached = resultCache.get(cacheKey);
+                if (cached != null) {
+                    SearchMetrics m = new SearchMetrics();
+                    BeanUtils.copyProperties(cached.metrics(), m);
+                    m.setCached(true);
+                    return new IndexResult(cached.results(), m, cached.nextCursor(), cached.facets());
+                }
+            }
 
-            Query query = buildQuery(queryText, indexKey, campoScelto);
-            
             // --- Calcolo metriche e tempo ---
-            long startTime = System.currentTimeMillis();
-            
-            TopDocs hits = currentSearcher.search(query, 10); // limitiamo a 10 risultati
+            SegmentSearchExecutor.SliceTimings sliceTimings = new SegmentSearchExecutor.SliceTimings();
+            long startTime = System.nanoTime();
             
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
+            // Primi (pagina + 1) * dimensione risultati, di cui si tiene l'ultima pagina;
+            // i segmenti vengono letti in parallelo secondo la policy dell'indice
+            int from = options.getPage() * options.getSize();
+            Hits collected = segmentSearchExecutor.timed(sliceTimings,
+                    () -> collectHits(currentSearcher, query, sort, from + options.getSize(), null, threshold, facets));
+            TopDocs top = collected.topDocs();
+            TopDocs hits = new TopDocs(top.totalHits, Arrays.copyOfRange(top.scoreDocs, Math.min(from, top.scoreDocs.length), top.scoreDocs.length));
+            if (sort != null) TopFieldCollector.populateScores(hits.scoreDocs, currentSearcher, query);
+            Map<String, List<FacetValue>> facetCounts = countFacets(indexKey, currentSearcher, collected);
+            long duration = TimeUnit.NANOSECONDS.toMillis(stageMetrics.recordSince(SearchStageMetrics.Stage.SEARCH, indexKey, startTime));
+
+            boolean moreHits = top.totalHits.relation() == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO
+                    || top.totalHits.value() > from + options.getSize();
+            IndexResult result = collect(indexKey, currentSearcher, query, hits, options.getSize(), moreHits, queryText, duration, sliceTimings, facetCounts);
+            // Una pagina con anteprime incomplete per tempo scaduto non va in cache
+            if (resultCache.isEnabled() && !result.metrics().isHighlightTruncated()) {
+                SearchMetrics cachedMetrics = new SearchMetrics();
+                BeanUtils.copyProperties(result.metrics(), cachedMetrics);
+                resultCache.put(cacheKey, new IndexResult(result.results(), cachedMetrics, result.nextCursor(), result.facets()));
+            }
+            return result;
+        } finally {
+            manager.release(currentSearcher);
+        }
+    }
+
+
+    // Nessuna raccolta per un indice già esaurito: la paginazione per offset ripartirebbe da (pagina + 1) * dimensione
+    private static IndexResult exhausted(String indexKey) {
+        SearchMetrics m = new SearchMetrics();
+        m.setIndex(indexKey);
+        m.setTotalHitsExact(true);
+        return new IndexResult(List.of(), m, null, null);
+    }
 
-             // Chiamata singola al servizio metriche: salva il risultato nell'oggetto m
-            SearchMetrics m = metricService.evaluateSearch(hits, queryText, indexKey, duration, currentSearcher);
-            
-            // Aggiungi le metriche alla risposta
-            response.getMetrichePerIndice().put(indexKey, m);
 
-            // Mappa i risultati
-            List<SearchResult> currentResults = mapHitsToDTO(hits, currentSearcher, indexKey);
-            risultatiFinali.put(indexKey, currentResults);
+    /*
+     * Pagina successiva a un cursore: la ricerca gira sullo stesso reader della pagina precedente
+     * (i doc id restano validi anche dopo un refresh) e raccoglie solo 'size' risultati dopo l'ultimo restituito.
+     * Non passa dalla cache dei risultati.
+     */
+    private IndexResult searchAfterCursor(String indexKey, Query query, String queryText, int size, Sort sort, int threshold,
+                                          boolean facets, SearchCursor cursor) throws Exception {
+        // Il cursore porta il valore di ordinamento solo se la pagina precedente era ordinata per campo:
+        // un cursore di un ordinamento diverso darebbe una pagina successiva sbagliata, non un errore
+        if ((cursor.sortValue() != null) != (sort != null)) {
+            throw new IllegalArgumentException("Cursore dell'indice '" + indexKey
+                    + "' non compatibile con l'ordinamento richiesto: ripartire dalla prima pagina");
+        }
+        SearcherLifetimeManager lifetime = lifetimeMap.get(indexKey);
+        IndexSearcher pinnedSearcher = lifetime.acquire(cursor.readerVersion());
+        if (pinnedSearcher == null) {
+            throw new IllegalArgumentException("Cursore scaduto per l'indice '" + indexKey + "': ripartire dalla prima pagina");
+        }
+        try {
+            SegmentSearchExecutor.SliceTimings sliceTimings = new SegmentSearchExecutor.SliceTimings();
+            long startTime = System.nanoTime();
+            ScoreDoc after = cursor.toScoreDoc();
+            Hits collected = segmentSearchExecutor.timed(sliceTimings,
+                    () -> collectHits(pinnedSearcher, query, sort, size, after, threshold, facets));
+            TopDocs hits = collected.topDocs();
+            if (sort != null) TopFieldCollector.populateScores(hits.scoreDocs, pinnedSearcher, query);
+            Map<String, List<FacetValue>> facetCounts = countFacets(indexKey, pinnedSearcher, collected);
+            long duration = TimeUnit.NANOSECONDS.toMillis(stageMetrics.recordSince(SearchStageMetrics.Stage.SEARCH, indexKey, startTime));
+            return collect(indexKey, pinnedSearcher, query, hits, size, true, queryText, duration, sliceTimings, facetCounts);
+        } finally {
+            lifetime.release(pinnedSearcher);
         }
-        response.setRisultati(risultatiFinali);
-        return response;
     }
 
 
-    private Query buildQuery(String testoRicerca, String indexKey, String campoScelto) throws ParseException {
-        List<Query> queries = new ArrayList<>();
-        String[] defaultFields;
+    // Campi memorizzati, metriche e DTO di una pagina; il cursore successivo si emette solo a pagina piena
+    private IndexResult collect(String indexKey, IndexSearcher searcher, Query query, TopDocs hits, int size, boolean moreHits,
+                                String queryText, long duration, SegmentSearchExecutor.SliceTimings sliceTimings,
+                                Map<String, List<FacetValue>> facets) throws IOException {
+        // I documenti vengono letti una sola volta e condivisi tra metriche e DTO
+        long stageStart = System.nanoTime();
+        List<Document> docs = loadDocuments(hits, searcher, indexKey);
+        stageMetrics.recordSince(SearchStageMetrics.Stage.FETCH, indexKey, stageStart);
+
+         // Chiamata singola al servizio metriche: salva il risultato nell'oggetto m
+        stageStart = System.nanoTime();
+        SearchMetrics m = metricService.evaluateSearch(hits, docs, queryText, indexKey, duration);
+        stageMetrics.recordSince(SearchStageMetrics.Stage.EVALUATE, indexKey, stageStart);
+        m.setSlices(sliceTimings.getSlices());
+        m.setMaxSliceMicros(sliceTimings.getMaxMicros());
+        m.setTotalSliceMicros(sliceTimings.getTotalMicros());
+
+        String nextCursor = null;
+        if (moreHits && hits.scoreDocs.length == size) {
+            ScoreDoc last = hits.scoreDocs[hits.scoreDocs.length - 1];
+            long version = lifetimeMap.get(indexKey).record(searcher);
+            nextCursor = SearchCursor.after(version, last).encode();
+        }
+
+        // Mappa i risultati
+        stageStart = System.nanoTime();
+        List<SearchResult> currentResults = mapHitsToDTO(hits, docs, indexKey);
+        stageMetrics.recordSince(SearchStageMetrics.Stage.MAP, indexKey, stageStart);
+        applyHighlights(indexKey, searcher, query, hits, currentResults, m);
+        return new IndexResult(List.copyOf(currentResults), m, nextCursor, facets);
+    }
+
 
-        switch (indexKey.toLowerCase()) {
-            case "articoli":
-                defaultFields = new String[]{"title", "authors", "articleAbstract", "paragraphs", "pubblicationDate"};
-                break;
-            case "tabelle":
-                defaultFields = new String[]{"caption", "body", "mentions", "context_paragraphs"};
-                break;
-            case "immagini":
-                defaultFields = new String[]{"caption", "alt", "mentions", "context_paragraphs", "fileName"};
-                break;
-            default:
-                defaultFields = new String[]{};
-                break;
+    /*
+     * Sostituisce l'anteprima precalcolata con i passaggi che contengono i termini della query; i risultati senza
+     * passaggi (query su altri campi) o rimasti fuori dal tempo massimo tengono quella precalcolata.
+     */
+    private void applyHighlights(String indexKey, IndexSearcher searcher, Query query, TopDocs hits,
+                                 List<SearchResult> results, SearchMetrics m) throws IOException {
+        HighlightService.Highlights highlights = highlightService.highlight(indexKey, searcher, query, hits.scoreDocs);
+        if (highlights == null) return;
+        stageMetrics.record(SearchStageMetrics.Stage.HIGHLIGHT, indexKey, highlights.micros() * 1000);
+        for (int i = 0; i < results.size(); i++) {
+            HighlightService.Snippet snippet = highlights.snippets()[i];
+            if (snippet == null) continue;
+            results.get(i).setSnippet(snippet.text());
+            results.get(i).setSnippetHtml(snippet.html());
         }
+        m.setHighlightMicros(highlights.micros());
+        m.setHighlighted(highlights.highlighted());
+        m.setHighlightTruncated(highlights.truncated());
+    }
+
 
-        if (defaultFields.length == 0) {
-            throw new ParseException("Nessun campo di ricerca predefinito per l'indice: " + indexKey);
+    /*
+     * Replay di una query per il warm-up: stesso percorso della ricerca (query compilata, top 10 sui segmenti,
+     * campi memorizzati, mapping dei risultati) ma senza cache dei risultati né metriche di rilevanza.
+     * Restituisce il numero di risultati, 0 se l'indice non è caricato.
+     */
+    public int warmUp(String indexKey, String queryText) throws Exception {
+        SearcherManager manager = managerMap.get(indexKey);
+        if (manager == null) return 0;
+        Query query = queryCompiler.compile(queryText, indexKey);
+        IndexSearcher currentSearcher = manager.acquire();
+        try {
+            TopDocs hits = segmentSearchExecutor.timed(new SegmentSearchExecutor.SliceTimings(), () -> currentSearcher.search(query, 10));
+            List<Document> docs = loadDocuments(hits, currentSearcher, indexKey);
+            return mapHitsToDTO(hits, docs, indexKey).size();
+        } finally {
+            manager.release(currentSearcher);
         }
+    }
+
+
+    public Set<String> getLoadedIndices() {
+        return new TreeSet<>(managerMap.keySet());
+    }
+
 
-        // --- Intercetta range su publicationYear ---
-        Pattern yearRangePattern = Pattern.compile("publicationYear\\s*:\\s*\\[(\\d{4})\\s+TO\\s+(\\d{4})\\]");
-        Matcher mYear = yearRangePattern.matcher(testoRicerca);
-        if (mYear.find()) {
-            int min = Integer.parseInt(mYear.group(1));
-            int max = Integer.parseInt(mYear.group(2));
-            queries.add(IntPoint.newRangeQuery("publicationYear", min, max));
-            testoRicerca = mYear.replaceAll(""); // rimuovo la parte range dalla query testuale
+    // Spazi ridondanti non cambiano la query: "diet  quality " e "diet quality" condividono la voce in cache
+    private static String normalizeQuery(String queryText) {
+        return WHITESPACE.matcher(queryText.trim()).replaceAll(" ");
+    }
+
+
+    // Stima approssimativa dell'occupazione in memoria di una voce della cache
+    private static long estimateWeight(IndexResult result) {
+        long weight = 256;
+        for (SearchResult r : result.results()) {
+            weight += 64;
+            weight += 2L * (length(r.getIdUnivoco()) + length(r.getTitolo()) + length(r.getSnippet()) + length(r.getSnippetHtml()) + length(r.getUrlDettaglio()));
+        }
+        if (result.facets() != null) {
+            for (List<FacetValue> values : result.facets().values()) {
+                for (FacetValue value : values) weight += 48 + 2L * length(value.getValore());
+            }
         }
+        return weight;
+    }
+
 
-        // --- Query testuale residua ---
-        if (!testoRicerca.trim().isEmpty()) {
-            MultiFieldQueryParser parser = new MultiFieldQueryParser(defaultFields, analyzer);
-            queries.add(parser.parse(testoRicerca.trim()));
+    private static long estimateDocumentWeight(Document doc) {
+        long weight = 128;
+        for (IndexableField field : doc) {
+            weight += 48 + 2L * length(field.name());
+            if (field.stringValue() != null) weight += 2L * field.stringValue().length();
+            else if (field.binaryValue() != null) weight += field.binaryValue().length;
         }
+        return weight;
+    }
 
-        // Combina tutte le query
-        if (queries.size() == 1) return queries.get(0);
-        BooleanQuery.Builder builder = new BooleanQuery.Builder();
-        for (Query q : queries) builder.add(q, BooleanClause.Occur.MUST);
-        return builder.build();
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
     }
 
 
-    private List<SearchResult> mapHitsToDTO(TopDocs hits, IndexSearcher searcher, String indexKey) throws IOException {
-        List<SearchResult> results = new ArrayList<>();
+    public LruCache.Stats getCacheStats() {
+        return resultCache.stats();
+    }
+
+
+    public LruCache.Stats getDocumentCacheStats() {
+        return documentCache.stats();
+    }
+
+
+    public void clearCache() {
+        resultCache.clear();
+    }
+
+
+    /*
+     * Carica i soli campi memorizzati necessari alla lista dei risultati (più quelli della
+     * valutazione di rilevanza, se attiva). Il testo completo viene letto solo dalla pagina di dettaglio.
+     */
+    private List<Document> loadDocuments(TopDocs hits, IndexSearcher searcher, String indexKey) throws IOException {
+        String key = indexKey.toLowerCase();
+        Set<String> fields = null; // null = documento completo
+        if (RESULT_FIELDS.containsKey(key)) {
+            fields = new HashSet<>(RESULT_FIELDS.get(key));
+            if (metricService.isEvaluationEnabled()) fields.addAll(ResultRelevanceEvaluator.fieldsFor(key));
+        }
+        String legacySnippetField = LEGACY_SNIPPET_FIELDS.get(key);
+
+        StoredFields storedFields = searcher.storedFields();
+        List<Document> docs = new ArrayList<>(hits.scoreDocs.length);
         for (ScoreDoc sd : hits.scoreDocs) {
-            Document doc = searcher.storedFields().document(sd.doc);
+            Document doc = fields == null ? storedFields.document(sd.doc) : storedFields.document(sd.doc, fields);
+            // Indici costruiti prima del campo "snippet": l'anteprima si ricava dal campo originale
+            if (legacySnippetField != null && doc.get("snippet") == null && doc.get(legacySnippetField) == null) {
+                String text = storedFields.document(sd.doc, Set.of(legacySnippetField)).get(legacySnippetField);
+                if (text != null) doc.add(new StoredField(legacySnippetField, text));
+            }
+            docs.add(doc);
+        }
+        return docs;
+    }
+
+
+    // Anteprima: campo "snippet" precalcolato, con ripiego sul campo originale per gli indici precedenti
+    private static String snippetOf(Document doc, String legacyField, String missing) {
+        String snippet = doc.get("snippet");
+        if (snippet == null) {
+            String text = doc.get(legacyField);
+            if (text == null) return missing;
+            snippet = text.substring(0, Math.min(text.length(), LuceneIndexer.SNIPPET_LENGTH));
+        }
+        return snippet + "...";
+    }
+
+
+    // Visibilità di package per i benchmark JMH (src/jmh/java)
+    List<SearchResult> mapHitsToDTO(TopDocs hits, List<Document> docs, String indexKey) {
+        List<SearchResult> results = new ArrayList<>();
+        for (int i = 0; i < hits.scoreDocs.length; i++) {
+            ScoreDoc sd = hits.scoreDocs[i];
+            Document doc = docs.get(i);
             String id = doc.get("id");
             float score = sd.score;
             String titolo, snippet, urlDettaglio;
@@ -166,21 +711,18 @@ public class Searcher {
             switch (indexKey.toLowerCase()) {
                 case "articoli":
                     titolo = doc.get("title");
-                    String abst = doc.get("articleAbstract");
-                    snippet = (abst != null) ? abst.substring(0, Math.min(abst.length(), 150)) + "..." : "Abstract non disponibile.";
+                    snippet = snippetOf(doc, "articleAbstract", "Abstract non disponibile.");
                     urlDettaglio = "/dettaglio/articoli/" + id;
                     break;
                 case "tabelle":
                     titolo = doc.get("caption");
-                    String context = doc.get("context_paragraphs");
-                    snippet = (context != null) ? context.substring(0, Math.min(context.length(), 150)) + "..." : "Contesto non disponibile.";
+                    snippet = snippetOf(doc, "context_paragraphs", "Contesto non disponibile.");
                     String articleId = doc.get("fileName");
                     urlDettaglio = "/dettaglio/tabelle/" + id + "?articleId=" + articleId;
                     break;
                 case "immagini":
                     titolo = doc.get("caption") != null ? doc.get("caption") : doc.get("id");
-                    String contextImg = doc.get("context_paragraphs");
-                    snippet = (contextImg != null) ? contextImg.substring(0, Math.min(contextImg.length(), 150)) + "..." : "Contesto non disponibile.";
+                    snippet = snippetOf(doc, "context_paragraphs", "Contesto non disponibile.");
                     String articleIdImg = doc.get("fileName");
                     urlDettaglio = "/dettaglio/immagini/" + id + "?articleId=" + articleIdImg;
                     break;
@@ -191,19 +733,103 @@ public class Searcher {
                     break;
             }
 
-            results.add(new SearchResult(indexKey.toUpperCase(), id, titolo, snippet, score, urlDettaglio));
+            results.add(new SearchResult(indexKey.toUpperCase(), id, titolo, snippet, score, urlDettaglio, null));
         }
         return results;
     }
 
 
+    /*
+     * Lettura per chiave primaria: un seekExact sul dizionario del campo id per segmento (con lucene.index.idBloomFilter
+     * i segmenti senza l'id vengono scartati dal bloom filter), senza query, scoring né TopDocs. Il documento completo
+     * resta in cache per la versione corrente del reader; i documenti restituiti dalla cache sono condivisi, da non modificare.
+     */
     public Document getDocumentById(String id, String indexKey) throws IOException {
-        IndexSearcher targetSearcher = searcherMap.get(indexKey);
-        if (targetSearcher == null) throw new IllegalArgumentException("Indice non valido o non caricato: " + indexKey);
+        SearcherManager manager = managerMap.get(indexKey);
+        if (manager == null) throw new IllegalArgumentException("Indice non valido o non caricato: " + indexKey);
+
+        IndexSearcher targetSearcher = manager.acquire();
+        try {
+            DocumentKey cacheKey = new DocumentKey(indexKey, id, ((DirectoryReader) targetSearcher.getIndexReader()).getVersion());
+            if (documentCache.isEnabled()) {
+                Document cached = documentCache.get(cacheKey);
+                if (cached != null) return cached;
+            }
+            Document[] found = new Document[1];
+            forEachLiveDoc(targetSearcher.getIndexReader(), LuceneIndexer.ID_FIELD, new BytesRef(id), (storedFields, doc) -> {
+                found[0] = storedFields.document(doc);
+                return false;
+            });
+            if (found[0] != null && documentCache.isEnabled()) documentCache.put(cacheKey, found[0]);
+            return found[0];
+        } finally {
+            manager.release(targetSearcher);
+        }
+    }
+
 
-        Query idQuery = new TermQuery(new Term("id", id));
-        TopDocs hits = targetSearcher.search(idQuery, 1);
-        if (hits.scoreDocs.length > 0) return targetSearcher.storedFields().document(hits.scoreDocs[0].doc);
-        return null;
+    // Riceve i documenti vivi di un segmento che contengono il termine, con i campi memorizzati del segmento
+    // (un'istanza per segmento: documenti contigui riusano il blocco già decompresso); false interrompe la visita
+    @FunctionalInterface
+    private interface LiveDocVisitor {
+        boolean visit(StoredFields storedFields, int doc) throws IOException;
+    }
+
+
+    /* Documenti vivi con il termine esatto nel campo: un seekExact sul dizionario dei termini di ogni segmento */
+    private static void forEachLiveDoc(IndexReader reader, String field, BytesRef term, LiveDocVisitor visitor) throws IOException {
+        for (LeafReaderContext leaf : reader.leaves()) {
+            LeafReader leafReader = leaf.reader();
+            Terms terms = leafReader.terms(field);
+            if (terms == null) continue;
+            TermsEnum termsEnum = terms.iterator();
+            if (!termsEnum.seekExact(term)) continue;
+
+            Bits liveDocs = leafReader.getLiveDocs();
+            StoredFields storedFields = leafReader.storedFields();
+            PostingsEnum postings = termsEnum.postings(null, PostingsEnum.NONE);
+            for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+                if (liveDocs != null && !liveDocs.get(doc)) continue;
+                if (!visitor.visit(storedFields, doc)) return;
+            }
+        }
+    }
+
+
+    /* Articolo con le tabelle e le immagini che ne provengono (null se l'articolo non esiste) */
+    public record ArticleWithAttachments(Document article, List<Document> tables, List<Document> images) {}
+
+
+    public ArticleWithAttachments getArticleWithAttachments(String articleId) throws IOException {
+        Document article = getDocumentById(articleId, "articoli");
+        if (article == null) return null;
+        return new ArticleWithAttachments(article, attachmentsOf("tabelle", articleId), attachmentsOf("immagini", articleId));
+    }
+
+
+    /*
+     * Tabelle o immagini di un articolo: un solo seekExact sul dizionario di ARTICLE_REF_FIELD per segmento, senza
+     * passare da query e collector. Con l'index sort per articolo (LuceneIndexer.byArticle) i documenti trovati sono
+     * contigui, quindi i loro campi memorizzati si leggono dagli stessi blocchi compressi.
+     * Lista vuota se l'indice non è (ancora) caricato.
+     */
+    private List<Document> attachmentsOf(String indexKey, String articleId) throws IOException {
+        SearcherManager manager = managerMap.get(indexKey);
+        if (manager == null) return List.of();
+
+        IndexSearcher targetSearcher = manager.acquire();
+        try {
+            Set<String> fields = ATTACHMENT_FIELDS.get(indexKey);
+            List<Document> docs = new ArrayList<>();
+            forEachLiveDoc(targetSearcher.getIndexReader(), LuceneIndexer.ARTICLE_REF_FIELD, new BytesRef(articleId), (storedFields, doc) -> {
+                docs.add(storedFields.document(doc, fields));
+                return true;
+            });
+            // Ordine stabile tra segmenti diversi
+            docs.sort(Comparator.comparing(doc -> Objects.requireNonNullElse(doc.get("id"), "")));
+            return docs;
+        } finally {
+            manager.release(targetSearcher);
+        }
     }
 }
@@ -0,0 +1,149 @@
+package it.uniroma3.idd.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Weight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Executor condiviso per la ricerca parallela sui segmenti di un indice.
+ * Per ogni indice la policy "maxDocs:maxSegmenti" di lucene.searcher.slices.map stabilisce
+ * come raggruppare i segmenti in slice; con maxDocs = 0 l'indice viene letto in sequenza.
+ * Il tempo di ogni slice viene raccolto nei SliceTimings della richiesta che l'ha generata.
+ */
+@Component
+public class SegmentSearchExecutor {
+
+    // Raccoglitore della richiesta corrente, propagato ai thread del pool insieme ai task
+    private static final ThreadLocal<SliceTimings> CURRENT = new ThreadLocal<>();
+
+    @Value("${lucene.searcher.executor.threads:0}")
+    private int threads;
+
+    @Value("${lucene.searcher.executor.queueCapacity:256}")
+    private int queueCapacity;
+
+    @Value("#{${lucene.searcher.slices.map}}")
+    private Map<String, String> slicePolicies;
+
+    private ThreadPoolExecutor pool;
+
+
+    /* Statistiche delle slice eseguite da una singola ricerca */
+    public static class SliceTimings {
+        private int slices;
+        private long totalNanos;
+        private long maxNanos;
+
+        synchronized void record(long nanos) {
+            slices++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        public synchronized int getSlices() { return slices; }
+        public synchronized long getTotalMicros() { return totalNanos / 1_000; }
+        public synchronized long getMaxMicros() { return maxNanos / 1_000; }
+    }
+
+
+    @PostConstruct
+    public void init() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // Con la coda piena la slice viene eseguita dal thread della richiesta
+        pool = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                Thread.ofPlatform().name("segment-search-", 0).daemon().factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+
+    @PreDestroy
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+
+    /* Crea l'IndexSearcher di un indice secondo la sua policy di slicing */
+    public IndexSearcher newSearcher(IndexReader reader, String indexKey) {
+        String policy = slicePolicies.getOrDefault(indexKey, "0");
+        String[] parts = policy.split(":");
+        int maxDocsPerSlice = Integer.parseInt(parts[0].trim());
+        int maxSegmentsPerSlice = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : Integer.MAX_VALUE;
+
+        if (maxDocsPerSlice <= 0) {
+            return new TimedIndexSearcher(reader, null, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+        return new TimedIndexSearcher(reader, this::execute, maxDocsPerSlice, maxSegmentsPerSlice);
+    }
+
+
+    /* Esegue la ricerca registrando le slice in timings */
+    public <T> T timed(SliceTimings timings, Callable<T> search) throws Exception {
+        SliceTimings previous = CURRENT.get();
+        CURRENT.set(timings);
+        try {
+            return search.call();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+
+    // Lucene invoca execute() dal thread della richiesta: qui si cattura il suo raccoglitore
+    private void execute(Runnable task) {
+        SliceTimings timings = CURRENT.get();
+        pool.execute(() -> {
+            CURRENT.set(timings);
+            try {
+                task.run();
+            } finally {
+                CURRENT.remove();
+            }
+        });
+    }
+
+
+    private static class TimedIndexSearcher extends IndexSearcher {
+
+        private final int maxDocsPerSlice;
+        private final int maxSegmentsPerSlice;
+
+        TimedIndexSearcher(IndexReader reader, Executor executor, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+            super(reader, executor);
+            this.maxDocsPerSlice = maxDocsPerSlice;
+            this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+        }
+
+        @Override
+        protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+            return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice, false);
+        }
+
+        // Invocato una volta per slice, sul thread che la esegue
+        @Override
+        protected void search(LeafReaderContextPartition[] partitions, Weight weight, Collector collector) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.search(partitions, weight, collector);
+            } finally {
+                SliceTimings timings = CURRENT.get();
+                if (timings != null) timings.record(System.nanoTime() - start);
+            }
+        }
+    }
+}
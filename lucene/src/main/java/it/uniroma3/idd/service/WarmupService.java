@@ -0,0 +1,146 @@
+package it.uniroma3.idd.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Warm-up con query reali: al termine dell'indicizzazione riesegue le query di lucene.warmup.queries
+ * su tutti gli IndexSearcher caricati (postings, stored fields, query cache di Lucene, JIT) entro lucene.warmup.budgetMs,
+ * poi segna l'applicazione come pronta. Lo stato è esposto da /health.
+ * Le query non passano dalla cache dei risultati né dalle metriche di rilevanza (vedi Searcher.warmUp).
+ */
+@Service
+public class WarmupService {
+
+    private final Searcher searcher;
+
+    @Value("${lucene.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${lucene.warmup.queries:classpath:warmup-queries.txt}")
+    private Resource queriesResource;
+
+    @Value("${lucene.warmup.rounds:3}")
+    private int rounds;
+
+    @Value("${lucene.warmup.budgetMs:30000}")
+    private long budgetMs;
+
+    private volatile String state = "starting";
+    private volatile boolean ready;
+    private volatile int queriesRun;
+    private volatile int errors;
+    private volatile long elapsedMs;
+
+
+    public record Status(boolean ready, String state, int queriesRun, int errors, long elapsedMs) {}
+
+    // Una riga del file: indici a cui si applica (vuoto = tutti quelli caricati) e testo della query
+    record WarmupQuery(List<String> indices, String query) {}
+
+
+    @Autowired
+    public WarmupService(Searcher searcher) {
+        this.searcher = searcher;
+    }
+
+
+    public boolean isReady() {
+        return ready;
+    }
+
+
+    public Status getStatus() {
+        return new Status(ready, state, queriesRun, errors, elapsedMs);
+    }
+
+
+    /* Avvia il warm-up su un thread separato, così IndexListener e l'avvio dell'applicazione non attendono */
+    public synchronized void startAsync() {
+        if (state.equals("warming")) return;
+        if (!enabled) {
+            state = "ready";
+            ready = true;
+            return;
+        }
+        state = "warming";
+        ready = false;
+        Thread.ofPlatform().name("search-warmup").daemon(true).start(this::run);
+    }
+
+
+    private void run() {
+        long start = System.nanoTime();
+        long deadline = budgetMs > 0 ? start + TimeUnit.MILLISECONDS.toNanos(budgetMs) : Long.MAX_VALUE;
+        int run = 0, failed = 0;
+        try {
+            // Gli indici sono appena stati (ri)scritti: i reader devono vedere l'ultimo commit prima del replay
+            searcher.refresh();
+            List<WarmupQuery> queries = loadQueries();
+            List<String> loaded = new ArrayList<>(searcher.getLoadedIndices());
+
+            replay:
+            for (int round = 0; round < rounds; round++) {
+                for (WarmupQuery warmupQuery : queries) {
+                    for (String indexKey : warmupQuery.indices().isEmpty() ? loaded : warmupQuery.indices()) {
+                        if (System.nanoTime() > deadline) {
+                            System.err.println("Warm-up delle query interrotto dopo " + budgetMs + " ms");
+                            break replay;
+                        }
+                        try {
+                            searcher.warmUp(indexKey, warmupQuery.query());
+                        } catch (Exception e) {
+                            // Solo al primo giro: negli altri l'errore sarebbe lo stesso
+                            if (round == 0) {
+                                failed++;
+                                System.err.println("Warm-up: query '" + warmupQuery.query() + "' su " + indexKey + " fallita: " + e.getMessage());
+                            }
+                        }
+                        run++;
+                        queriesRun = run;
+                        errors = failed;
+                        elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Errore nel warm-up delle query: " + e.getMessage());
+        } finally {
+            elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            state = "ready";
+            ready = true;
+            System.out.println("Warm-up delle query completato: " + run + " ricerche (" + failed + " errori) in " + elapsedMs + " ms");
+        }
+    }
+
+
+    private List<WarmupQuery> loadQueries() throws IOException {
+        List<WarmupQuery> queries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(queriesResource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.stripLeading().startsWith("#")) continue;
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    queries.add(new WarmupQuery(List.of(), line.strip()));
+                } else {
+                    List<String> indices = Arrays.stream(line.substring(0, tab).split(","))
+                            .map(String::strip).filter(s -> !s.isEmpty()).toList();
+                    queries.add(new WarmupQuery(indices, line.substring(tab + 1).strip()));
+                }
+            }
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,421 @@
+package it.uniroma3.idd.utils;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Entities;
+import org.jsoup.parser.StreamParser;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * Estrazione in un solo passaggio dei campi di un articolo PMC, senza costruire il DOM completo:
+ * StAX per i file JATS, StreamParser di jsoup per l'HTML (gli elementi già letti vengono rimossi).
+ * Il formato viene riconosciuto sullo stesso stream bufferizzato usato per il parsing.
+ * I testi riproducono Element.text() di jsoup e l'ordine del documento dei selettori usati da Parser,
+ * così il risultato coincide con quello del percorso jsoup (verificato da ArticleParserParityTest).
+ */
+final class ArticleStreamExtractor {
+
+    // Byte letti per riconoscere il formato (le prime 5 righe del file)
+    static final int SNIFF_LIMIT = 64 * 1024;
+
+    /* Data di pubblicazione JATS grezza: string-date oppure anno/mese/giorno */
+    record PubDate(String stringDate, String year, String month, String day) {}
+
+    /* Campi estratti; null quando l'elemento corrispondente non è presente */
+    record Fields(boolean html, String title, List<String> authors, String articleAbstract,
+                  String htmlDate, PubDate jatsDate, List<String> paragraphs) {}
+
+    private static final Evaluator META_TITLE = QueryParser.parse("meta[name=citation_title]");
+    private static final Evaluator META_AUTHOR = QueryParser.parse("meta[name=citation_author]");
+    private static final Evaluator META_DESCRIPTION = QueryParser.parse("meta[name=description]");
+    private static final Evaluator META_OG_DESCRIPTION = QueryParser.parse("meta[name=og:description]");
+    private static final Evaluator META_DATE = QueryParser.parse("meta[name=citation_publication_date]");
+    private static final Evaluator H1_TITLE = QueryParser.parse("h1.content-title");
+    private static final Evaluator ABSTRACT_DIV = QueryParser.parse("div.abstract-content, div#abstract-1");
+    private static final Evaluator BODY_P = QueryParser.parse("body p");
+
+    // XMLInputFactory non è garantita thread-safe: una per thread della pipeline di ingestione
+    private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        // Le entità HTML (&nbsp;, &eacute;, ...) non sono dichiarate senza DTD: si risolvono come fa jsoup
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, false);
+        // Le sezioni CDATA restano distinte: jsoup non ne normalizza gli spazi
+        if (factory.isPropertySupported("http://java.sun.com/xml/stream/properties/report-cdata-event")) {
+            factory.setProperty("http://java.sun.com/xml/stream/properties/report-cdata-event", true);
+        }
+        return factory;
+    });
+
+    private ArticleStreamExtractor() {}
+
+
+    /**
+     * Stessa regola del rilevamento precedente (prime 5 righe, righe vuote incluse nel conteggio),
+     * applicata ai primi SNIFF_LIMIT byte: lo stream viene riportato all'inizio.
+     */
+    static boolean sniffHtml(BufferedInputStream in) throws IOException {
+        in.mark(SNIFF_LIMIT);
+        byte[] head = in.readNBytes(SNIFF_LIMIT);
+        in.reset();
+
+        BufferedReader br = new BufferedReader(new StringReader(new String(head, StandardCharsets.UTF_8)));
+        for (int i = 0; i < 5; i++) {
+            String line = br.readLine();
+            if (line == null) break;
+            line = line.trim().toLowerCase();
+            if (line.isEmpty()) continue;
+
+            if (line.startsWith("<!doctype html") || line.startsWith("<html")) return true;
+            if (line.startsWith("<?xml") || line.startsWith("<pmc-articleset") || line.startsWith("<article")) return false;
+        }
+        return false;
+    }
+
+
+    /* ----------------------------
+    ------------- HTML ------------
+    -------------------------------*/
+    static Fields extractHtml(BufferedInputStream in) throws IOException {
+        skipByteOrderMark(in);
+        try (StreamParser streamParser = new StreamParser(org.jsoup.parser.Parser.htmlParser())
+                .parse(new InputStreamReader(in, StandardCharsets.UTF_8), "")) {
+            String metaTitle = null, description = null, ogDescription = null, date = null;
+            Element h1Title = null, abstractDiv = null;
+            List<String> authors = new ArrayList<>();
+            List<String> paragraphs = new ArrayList<>();
+
+            // Gli elementi arrivano quando vengono chiusi (i figli prima dei genitori)
+            Iterator<Element> it = streamParser.iterator();
+            while (it.hasNext()) {
+                Element el = it.next();
+                if (el.nameIs("meta")) {
+                    if (metaTitle == null && el.is(META_TITLE)) metaTitle = el.attr("content");
+                    if (el.is(META_AUTHOR)) authors.add(el.attr("content"));
+                    if (description == null && el.is(META_DESCRIPTION)) description = el.attr("content");
+                    if (ogDescription == null && el.is(META_OG_DESCRIPTION)) ogDescription = el.attr("content");
+                    if (date == null && el.is(META_DATE)) date = el.attr("content");
+                    el.remove();
+                } else if (el.nameIs("p")) {
+                    if (el.is(BODY_P)) {
+                        String text = el.text();
+                        if (text.length() > 50) paragraphs.add(text); // Filtra testo di navigazione breve
+                    }
+                    // Il testo dei paragrafi serve ancora se fanno parte dell'abstract o del titolo
+                    if (!hasAncestor(el, ABSTRACT_DIV) && !hasAncestor(el, H1_TITLE)) el.remove();
+                } else if (h1Title == null && el.is(H1_TITLE)) {
+                    h1Title = el;
+                } else if (el.is(ABSTRACT_DIV)) {
+                    // Primo nell'ordine del documento: un contenitore chiuso dopo il candidato lo precede
+                    if (abstractDiv == null || hasAncestor(abstractDiv, el)) abstractDiv = el;
+                }
+            }
+
+            String title = metaTitle;
+            if (title == null) {
+                String documentTitle = streamParser.document().title();
+                if (!documentTitle.isEmpty()) title = documentTitle;
+                else if (h1Title != null) title = h1Title.text();
+            }
+            String articleAbstract = description != null ? description
+                    : ogDescription != null ? ogDescription
+                    : abstractDiv != null ? abstractDiv.text() : null;
+
+            return new Fields(true, title, authors, articleAbstract, date, null, paragraphs);
+        }
+    }
+
+
+    private static boolean hasAncestor(Element el, Evaluator evaluator) {
+        for (Element parent = el.parent(); parent != null; parent = parent.parent()) {
+            if (parent.is(evaluator)) return true;
+        }
+        return false;
+    }
+
+
+    private static boolean hasAncestor(Element el, Element ancestor) {
+        for (Element parent = el.parent(); parent != null; parent = parent.parent()) {
+            if (parent == ancestor) return true;
+        }
+        return false;
+    }
+
+
+    // jsoup scarta il BOM iniziale quando legge da file: qui si legge da un Reader
+    private static void skipByteOrderMark(BufferedInputStream in) throws IOException {
+        in.mark(3);
+        byte[] bom = in.readNBytes(3);
+        if (!(bom.length == 3 && (bom[0] & 0xFF) == 0xEF && (bom[1] & 0xFF) == 0xBB && (bom[2] & 0xFF) == 0xBF)) {
+            in.reset();
+        }
+    }
+
+
+    /* ----------------------------
+    ------------- JATS ------------
+    -------------------------------*/
+    static Fields extractJats(BufferedInputStream in) throws IOException, XMLStreamException {
+        // Decodifica a blocchi con un Reader: lo scanner di Xerces su InputStream legge un byte alla volta
+        skipByteOrderMark(in);
+        XMLStreamReader reader = XML_INPUT_FACTORY.get().createXMLStreamReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            JatsHandler handler = new JatsHandler();
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> handler.start(reader);
+                    case XMLStreamConstants.END_ELEMENT -> handler.end();
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.SPACE ->
+                            handler.text(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    case XMLStreamConstants.CDATA -> handler.raw(reader.getText());
+                    case XMLStreamConstants.ENTITY_REFERENCE -> handler.entity(reader.getLocalName());
+                    default -> { }
+                }
+            }
+            return handler.result();
+        } finally {
+            reader.close();
+        }
+    }
+
+
+    /*
+     * Riproduce Element.text() di jsoup in modalità XML: spazi consecutivi ridotti a uno,
+     * caratteri invisibili rimossi, spazio per <br>, CDATA copiato così com'è, trim finale.
+     * (Con il parser XML di jsoup tutti i tag sono inline: nessuno spazio tra elementi adiacenti.)
+     */
+    private static final class TextCapture {
+        private final StringBuilder sb = new StringBuilder();
+
+        void append(char[] chars, int start, int length) {
+            int run = start; // inizio del tratto di caratteri ordinari ancora da copiare
+            for (int i = start, end = start + length; i < end; i++) {
+                char c = chars[i];
+                if (c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r' || c == '\u00a0') {
+                    sb.append(chars, run, i - run);
+                    run = i + 1;
+                    if (sb.length() > 0 && sb.charAt(sb.length() - 1) == ' ') continue;
+                    sb.append(' ');
+                } else if (c == '\u200b' || c == '\u00ad') { // spazio a larghezza zero, trattino morbido
+                    sb.append(chars, run, i - run);
+                    run = i + 1;
+                }
+            }
+            sb.append(chars, run, start + length - run);
+        }
+
+        void appendRaw(String text) {
+            sb.append(text);
+        }
+
+        void lineBreak() {
+            if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') sb.append(' ');
+        }
+
+        String text() {
+            return sb.toString().trim();
+        }
+    }
+
+
+    // Come Elements.text(): testi degli elementi separati da uno spazio
+    private static String joinText(List<TextCapture> captures) {
+        StringBuilder sb = new StringBuilder();
+        for (TextCapture capture : captures) {
+            if (sb.length() != 0) sb.append(' ');
+            sb.append(capture.text());
+        }
+        return sb.toString();
+    }
+
+
+    private static final class AuthorName {
+        final List<TextCapture> givenNames = new ArrayList<>();
+        final List<TextCapture> surnames = new ArrayList<>();
+    }
+
+
+    private static final class PubDateElement {
+        final String pubType;
+        final List<TextCapture> stringDates = new ArrayList<>();
+        final List<TextCapture> years = new ArrayList<>();
+        final List<TextCapture> months = new ArrayList<>();
+        final List<TextCapture> days = new ArrayList<>();
+
+        PubDateElement(String pubType) {
+            this.pubType = pubType;
+        }
+    }
+
+
+    private static final class Frame {
+        int captures;
+        boolean abstractElement, bodyElement, authorContrib;
+        AuthorName name;
+        PubDateElement pubDate;
+    }
+
+
+    /*
+     * Selettori del percorso jsoup: "article-title" (il primo), "abstract p", "body p",
+     * "contrib[contrib-type=author] name" con given-names/surname, "pub-date" con string-date/year/month/day.
+     * Ogni elemento selezionato apre una cattura che riceve tutto il testo fino alla sua chiusura.
+     */
+    private static final class JatsHandler {
+        private final Deque<Frame> stack = new ArrayDeque<>();
+        private final List<TextCapture> open = new ArrayList<>();
+        private final Deque<AuthorName> openNames = new ArrayDeque<>();
+        private final Deque<PubDateElement> openPubDates = new ArrayDeque<>();
+        private int abstractDepth, bodyDepth, authorContribDepth;
+
+        private TextCapture title;
+        private final List<TextCapture> abstractParagraphs = new ArrayList<>();
+        private final List<TextCapture> bodyParagraphs = new ArrayList<>();
+        private final List<AuthorName> names = new ArrayList<>();
+        private final List<PubDateElement> pubDates = new ArrayList<>();
+
+
+        void start(XMLStreamReader reader) {
+            String prefix = reader.getPrefix();
+            String name = (prefix == null || prefix.isEmpty() ? reader.getLocalName() : prefix + ":" + reader.getLocalName()).toLowerCase();
+            Frame frame = new Frame();
+
+            switch (name) {
+                case "br" -> open.forEach(TextCapture::lineBreak);
+                case "article-title" -> {
+                    if (title == null) title = capture(frame);
+                }
+                case "p" -> {
+                    if (abstractDepth > 0) abstractParagraphs.add(capture(frame));
+                    if (bodyDepth > 0) bodyParagraphs.add(capture(frame));
+                }
+                case "name" -> {
+                    if (authorContribDepth > 0) {
+                        frame.name = new AuthorName();
+                        names.add(frame.name);
+                    }
+                }
+                case "given-names" -> openNames.forEach(n -> n.givenNames.add(capture(frame)));
+                case "surname" -> openNames.forEach(n -> n.surnames.add(capture(frame)));
+                case "pub-date" -> {
+                    frame.pubDate = new PubDateElement(attribute(reader, "pub-type"));
+                    pubDates.add(frame.pubDate);
+                }
+                case "string-date" -> openPubDates.forEach(d -> d.stringDates.add(capture(frame)));
+                case "year" -> openPubDates.forEach(d -> d.years.add(capture(frame)));
+                case "month" -> openPubDates.forEach(d -> d.months.add(capture(frame)));
+                case "day" -> openPubDates.forEach(d -> d.days.add(capture(frame)));
+                default -> { }
+            }
+
+            // Il contesto vale per i discendenti, non per l'elemento stesso
+            if (name.equals("abstract")) { frame.abstractElement = true; abstractDepth++; }
+            if (name.equals("body")) { frame.bodyElement = true; bodyDepth++; }
+            if (name.equals("contrib") && "author".equalsIgnoreCase(attribute(reader, "contrib-type"))) {
+                frame.authorContrib = true;
+                authorContribDepth++;
+            }
+            if (frame.name != null) openNames.push(frame.name);
+            if (frame.pubDate != null) openPubDates.push(frame.pubDate);
+            stack.push(frame);
+        }
+
+
+        void end() {
+            Frame frame = stack.pop();
+            for (int i = 0; i < frame.captures; i++) open.remove(open.size() - 1);
+            if (frame.abstractElement) abstractDepth--;
+            if (frame.bodyElement) bodyDepth--;
+            if (frame.authorContrib) authorContribDepth--;
+            if (frame.name != null) openNames.pop();
+            if (frame.pubDate != null) openPubDates.pop();
+        }
+
+
+        void text(char[] chars, int start, int length) {
+            for (TextCapture capture : open) capture.append(chars, start, length);
+        }
+
+
+        void raw(String text) {
+            for (TextCapture capture : open) capture.appendRaw(text);
+        }
+
+
+        // Come jsoup: entità HTML note decodificate, le altre lasciate come testo
+        void entity(String name) {
+            String value = Entities.getByName(name);
+            if (value.isEmpty()) value = "&" + name + ";";
+            char[] chars = value.toCharArray();
+            text(chars, 0, chars.length);
+        }
+
+
+        private TextCapture capture(Frame frame) {
+            TextCapture capture = new TextCapture();
+            open.add(capture);
+            frame.captures++;
+            return capture;
+        }
+
+
+        // Come il selettore [attr=valore] di jsoup: confronto senza maiuscole e spazi esterni
+        private static String attribute(XMLStreamReader reader, String name) {
+            String value = reader.getAttributeValue(null, name);
+            return value == null ? null : value.trim();
+        }
+
+
+        Fields result() {
+            List<String> authors = new ArrayList<>();
+            for (AuthorName n : names) {
+                authors.add(joinText(n.givenNames) + " " + joinText(n.surnames));
+            }
+
+            String articleAbstract = abstractParagraphs.isEmpty() ? null : joinText(abstractParagraphs);
+
+            List<String> paragraphs = new ArrayList<>();
+            for (TextCapture p : bodyParagraphs) {
+                String text = p.text();
+                if (!text.isEmpty()) paragraphs.add(text);
+            }
+
+            return new Fields(false, title != null ? title.text() : null, authors, articleAbstract,
+                    null, selectPubDate(), paragraphs);
+        }
+
+
+        // epub, poi ppub, poi la prima pub-date del documento
+        private PubDate selectPubDate() {
+            PubDateElement selected = null;
+            for (String type : new String[]{"epub", "ppub"}) {
+                for (PubDateElement d : pubDates) {
+                    if (type.equalsIgnoreCase(d.pubType)) { selected = d; break; }
+                }
+                if (selected != null) break;
+            }
+            if (selected == null && !pubDates.isEmpty()) selected = pubDates.get(0);
+            if (selected == null) return null;
+
+            String stringDate = selected.stringDates.isEmpty() ? null : selected.stringDates.get(0).text();
+            return new PubDate(stringDate, joinText(selected.years), joinText(selected.months), joinText(selected.days));
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package it.uniroma3.idd.utils;
+
+import org.jsoup.nodes.Entities;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Testo di un frammento HTML senza costruire il DOM: equivalente a Jsoup.parse(html).text() per il corpo delle tabelle.
+ * Un solo passaggio sui caratteri con le stesse regole del tokenizer jsoup: tag e commenti scartati, entità decodificate,
+ * spazi consecutivi ridotti a uno, uno spazio ai confini dei tag di blocco (celle, righe, paragrafi),
+ * così i valori numerici di celle adiacenti restano token separati per l'analyzer whitespace del campo body.
+ * Non riproduce le correzioni dell'albero HTML: jsoup scarta <td>/<tr> fuori da una <table> e i tag di chiusura orfani,
+ * incollando celle adiacenti ("<td>1</td><td>2</td>" -> "12"); qui i confini restano ("1 2").
+ * I riferimenti numerici a U+0000 e ai surrogati diventano U+FFFD come da specifica HTML (jsoup 1.21 li lascia invariati).
+ * Confronto con jsoup in HtmlTextStripperTest.
+ */
+final class HtmlTextStripper {
+
+    private static final int BLOCK = 1, DATA = 2, RCDATA = 4;
+    // Tag noti con le loro proprietà (tutti gli altri sono inline): una sola ricerca per tag
+    private static final Map<String, Integer> TAGS = new HashMap<>();
+
+    static {
+        // Tag di blocco dell'HTML di jsoup (TagSet.initHtmlDefault)
+        for (String tag : new String[]{
+                "html", "head", "body", "frameset", "script", "noscript", "style", "meta", "link", "title", "frame",
+                "noframes", "section", "nav", "aside", "hgroup", "header", "footer", "p", "h1", "h2", "h3", "h4", "h5",
+                "h6", "br", "button", "ul", "ol", "pre", "div", "blockquote", "hr", "address", "figure", "figcaption",
+                "form", "fieldset", "ins", "del", "dl", "dt", "dd", "li", "table", "caption", "thead", "tfoot", "tbody",
+                "colgroup", "col", "tr", "th", "td", "video", "audio", "canvas", "details", "menu", "plaintext", "template",
+                "article", "main", "center", "dir", "applet", "marquee", "listing", "math", "svg"}) {
+            TAGS.merge(tag, BLOCK, (x, y) -> x | y);
+        }
+        // Contenuto escluso dal testo (script, stili, ...)
+        for (String tag : new String[]{"iframe", "noembed", "noframes", "script", "style", "xmp"}) {
+            TAGS.merge(tag, DATA, (x, y) -> x | y);
+        }
+        // Contenuto testuale con entità ma senza tag, spazi conservati
+        for (String tag : new String[]{"title", "textarea"}) {
+            TAGS.merge(tag, RCDATA, (x, y) -> x | y);
+        }
+    }
+
+    // Riferimenti numerici 0x80-0x9F interpretati come windows-1252, come fanno browser e jsoup
+    private static final int[] WIN1252_EXTENSIONS = {
+            0x20AC, 0x0081, 0x201A, 0x0192, 0x201E, 0x2026, 0x2020, 0x2021,
+            0x02C6, 0x2030, 0x0160, 0x2039, 0x0152, 0x008D, 0x017D, 0x008F,
+            0x0090, 0x2018, 0x2019, 0x201C, 0x201D, 0x2022, 0x2013, 0x2014,
+            0x02DC, 0x2122, 0x0161, 0x203A, 0x0153, 0x009D, 0x017E, 0x0178,
+    };
+
+    private final String html;
+    private final int length;
+    private final StringBuilder out;
+    private int pos;
+    private int preDepth;
+    private boolean pendingSpace;
+
+
+    private HtmlTextStripper(String html) {
+        this.html = html;
+        this.length = html.length();
+        this.out = new StringBuilder(html.length());
+    }
+
+
+    static String text(String html) {
+        if (html == null || html.isEmpty()) return "";
+        // Caso comune (body già estratto come testo dallo script Python): niente tag né entità
+        if (html.indexOf('<') < 0 && html.indexOf('&') < 0) {
+            HtmlTextStripper stripper = new HtmlTextStripper(html);
+            stripper.appendText(html, 0, html.length());
+            return stripper.out.toString().trim();
+        }
+        return new HtmlTextStripper(html).strip();
+    }
+
+
+    private String strip() {
+        int textStart = pos;
+        while (pos < length) {
+            char c = html.charAt(pos);
+            if (c == '<') {
+                appendText(html, textStart, pos);
+                markup();
+                textStart = pos;
+            } else if (c == '&') {
+                appendText(html, textStart, pos);
+                characterReference();
+                textStart = pos;
+            } else {
+                pos++;
+            }
+        }
+        appendText(html, textStart, length);
+        return out.toString().trim();
+    }
+
+
+    /*---- TESTO ----*/
+
+    // Come StringUtil.appendNormalisedWhitespace di jsoup; dentro <pre> il testo è copiato così com'è
+    private void appendText(CharSequence text, int start, int end) {
+        if (start >= end) return;
+        if (preDepth > 0) {
+            boundary();
+            out.append(text, start, end);
+            return;
+        }
+        int run = start; // inizio del tratto di caratteri ordinari ancora da copiare
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r' || c == '\u00a0') {
+                appendRun(text, run, i);
+                run = i + 1;
+                if (out.length() > 0 && out.charAt(out.length() - 1) == ' ') continue;
+                out.append(' ');
+            } else if (c == '\u200b' || c == '\u00ad') { // spazio a larghezza zero, trattino morbido
+                appendRun(text, run, i);
+                run = i + 1;
+            }
+        }
+        appendRun(text, run, end);
+    }
+
+
+    private void appendRun(CharSequence text, int start, int end) {
+        if (start < end) {
+            boundary();
+            out.append(text, start, end);
+        }
+    }
+
+
+    // Spazio tra il contenuto di un blocco e il testo che segue (<td>1</td><td>2</td> -> "1 2")
+    private void boundary() {
+        if (pendingSpace) {
+            pendingSpace = false;
+            if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') out.append(' ');
+        }
+    }
+
+
+    private void appendCodePoint(int codePoint) {
+        appendText(new StringBuilder(2).appendCodePoint(codePoint), 0, Character.charCount(codePoint));
+    }
+
+
+    /*---- ENTITÀ ----*/
+
+    // Come Tokeniser.consumeCharacterReference di jsoup (testo, non attributi); pos è su '&'
+    private void characterReference() {
+        int start = pos++;
+        if (pos >= length || "\t\n\r\f <&".indexOf(html.charAt(pos)) >= 0) {
+            appendText(html, start, pos);
+            return;
+        }
+
+        if (html.charAt(pos) == '#') {
+            int p = pos + 1;
+            boolean hex = p < length && (html.charAt(p) == 'x' || html.charAt(p) == 'X');
+            if (hex) p++;
+            int digitsStart = p;
+            while (p < length && Character.digit(html.charAt(p), hex ? 16 : 10) >= 0 && html.charAt(p) < 128) p++;
+            if (p == digitsStart) { // "&#" senza cifre: testo letterale
+                appendText(html, start, pos);
+                return;
+            }
+            int codePoint;
+            try {
+                codePoint = Integer.parseInt(html, digitsStart, p, hex ? 16 : 10);
+            } catch (NumberFormatException e) {
+                codePoint = -1;
+            }
+            if (p < length && html.charAt(p) == ';') p++;
+            pos = p;
+            // Fuori dall'intervallo Unicode, NUL e surrogati isolati (UTF-16 non valido per l'indice): carattere sostitutivo
+            if (codePoint == -1 || codePoint == 0 || codePoint > 0x10FFFF
+                    || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) codePoint = 0xFFFD;
+            else if (codePoint >= 0x80 && codePoint < 0x80 + WIN1252_EXTENSIONS.length) codePoint = WIN1252_EXTENSIONS[codePoint - 0x80];
+            appendCodePoint(codePoint);
+            return;
+        }
+
+        // Lettere poi cifre, come CharacterReader.consumeLetterThenDigitSequence
+        int p = pos;
+        while (p < length && isAsciiLetter(html.charAt(p))) p++;
+        while (p < length && html.charAt(p) >= '0' && html.charAt(p) <= '9') p++;
+        String name = html.substring(pos, p);
+        boolean semicolon = p < length && html.charAt(p) == ';';
+        if (!(Entities.isBaseNamedEntity(name) || (Entities.isNamedEntity(name) && semicolon))) {
+            // "&ampx" -> "&x": vale il prefisso più lungo che sia un'entità base
+            name = Entities.findPrefix(name);
+            if (name.isEmpty()) {
+                appendText(html, start, pos);
+                return;
+            }
+            p = pos + name.length();
+        }
+        if (p < length && html.charAt(p) == ';') p++;
+        pos = p;
+        String value = Entities.getByName(name);
+        appendText(value, 0, value.length());
+    }
+
+
+    /*---- MARKUP ----*/
+
+    // pos è su '<': tag, commento, doctype o CDATA; altrimenti '<' resta testo
+    private void markup() {
+        int start = pos++;
+        if (pos >= length) {
+            appendText(html, start, pos);
+            return;
+        }
+        char c = html.charAt(pos);
+        if (c == '!') {
+            pos++;
+            if (html.startsWith("--", pos)) comment();
+            else if (html.startsWith("[CDATA[", pos)) cdata();
+            else skipPast('>'); // doctype o commento non valido
+        } else if (c == '?') {
+            skipPast('>');
+        } else if (c == '/') {
+            pos++;
+            if (pos >= length) appendText(html, start, pos); // "</" a fine input resta testo
+            else if (html.charAt(pos) == '>') pos++; // "</>" ignorato
+            else if (isAsciiLetter(html.charAt(pos))) endTag(tagName());
+            else skipPast('>');
+        } else if (isAsciiLetter(c)) {
+            startTag(tagName());
+        } else {
+            appendText(html, start, pos);
+        }
+    }
+
+
+    private String tagName() {
+        int start = pos;
+        boolean upperCase = false;
+        while (pos < length) {
+            char c = html.charAt(pos);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '/' || c == '>') break;
+            if (c >= 'A' && c <= 'Z') upperCase = true;
+            pos++;
+        }
+        String name = html.substring(start, pos);
+        return upperCase ? name.toLowerCase(Locale.ROOT) : name;
+    }
+
+
+    private void startTag(String name) {
+        if (!skipAttributes()) return; // tag non chiuso a fine input: jsoup lo scarta
+
+        int flags = TAGS.getOrDefault(name, 0);
+        if ((flags & BLOCK) != 0) pendingSpace = true;
+        if ((flags & DATA) != 0) {
+            skipRawText(name);
+        } else if ((flags & RCDATA) != 0) {
+            int end = findEndTag(name);
+            preDepth++;
+            appendDecoded(pos, end);
+            preDepth--;
+            pos = end;
+        } else if (name.equals("plaintext")) {
+            preDepth++;
+            appendText(html, pos, length);
+            pos = length;
+        } else if (name.equals("pre") || name.equals("listing")) {
+            if (name.equals("pre")) preDepth++;
+            // Il primo a capo dopo <pre> non fa parte del contenuto
+            if (pos < length && html.charAt(pos) == '\n') pos++;
+        }
+    }
+
+
+    private void endTag(String name) {
+        if (!skipAttributes()) return;
+        if ((TAGS.getOrDefault(name, 0) & BLOCK) != 0) pendingSpace = true;
+        if (name.equals("pre") && preDepth > 0) preDepth--;
+    }
+
+
+    // Salta gli attributi fino al '>' (valori tra virgolette inclusi); false se l'input finisce prima
+    private boolean skipAttributes() {
+        while (pos < length) {
+            char c = html.charAt(pos++);
+            if (c == '>') return true;
+            if (c == '=') {
+                while (pos < length && Character.isWhitespace(html.charAt(pos))) pos++;
+                if (pos < length && (html.charAt(pos) == '"' || html.charAt(pos) == '\'')) {
+                    int close = html.indexOf(html.charAt(pos), pos + 1);
+                    if (close < 0) break;
+                    pos = close + 1;
+                }
+            }
+        }
+        pos = length;
+        return false;
+    }
+
+
+    private void comment() {
+        pos += 2;
+        // "<!-->" e "<!--->" sono commenti vuoti
+        if (html.startsWith(">", pos)) { pos++; return; }
+        if (html.startsWith("->", pos)) { pos += 2; return; }
+        int end = html.indexOf("-->", pos);
+        pos = end < 0 ? length : end + 3;
+    }
+
+
+    // CDATA: testo copiato così com'è (CDataNode in jsoup)
+    private void cdata() {
+        pos += "[CDATA[".length();
+        int end = html.indexOf("]]>", pos);
+        int stop = end < 0 ? length : end;
+        if (stop > pos) {
+            boundary();
+            out.append(html, pos, stop);
+        }
+        pos = end < 0 ? length : end + 3;
+    }
+
+
+    private void skipPast(char c) {
+        int end = html.indexOf(c, pos);
+        pos = end < 0 ? length : end + 1;
+    }
+
+
+    // Contenuto di script/style: scartato fino al tag di chiusura corrispondente
+    private void skipRawText(String name) {
+        pos = findEndTag(name);
+    }
+
+
+    // Posizione di "</name" (seguito da spazio, '/' o '>') a partire da pos, oppure fine input
+    private int findEndTag(String name) {
+        int from = pos;
+        while (true) {
+            int lt = html.indexOf("</", from);
+            if (lt < 0) return length;
+            int after = lt + 2 + name.length();
+            if (html.regionMatches(true, lt + 2, name, 0, name.length())
+                    && (after >= length || " \t\n\r\f/>".indexOf(html.charAt(after)) >= 0)) {
+                return lt;
+            }
+            from = lt + 2;
+        }
+    }
+
+
+    // Testo di title/textarea: entità decodificate, nessun tag
+    private void appendDecoded(int start, int end) {
+        int textStart = start;
+        pos = start;
+        while (pos < end) {
+            if (html.charAt(pos) == '&') {
+                appendText(html, textStart, pos);
+                characterReference();
+                textStart = pos;
+            } else {
+                pos++;
+            }
+        }
+        appendText(html, textStart, end);
+    }
+
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,187 @@
+package it.uniroma3.idd.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+/**
+ * Manifest dei file sorgente già indicizzati (nome, dimensione, data di modifica, hash del contenuto).
+ * Viene salvato accanto ai segmenti Lucene e permette di re-indicizzare solo i file
+ * aggiunti, modificati o rimossi rispetto all'ultimo commit.
+ */
+public class IndexManifest {
+
+    public static final String FILE_NAME = "ingest.manifest";
+    private static final String LAYOUT_PREFIX = "# layout=";
+
+    public record Entry(long size, long lastModified, String hash) {}
+
+    /*
+     * Risultato del confronto tra manifest e directory sorgente.
+     * touched: file invariati nel contenuto ma con dimensione o data di modifica diverse, già aggiornati nel manifest.
+     */
+    public record Diff(List<File> changed, Set<String> removed, int unchanged, int touched) {
+        public boolean isEmpty() {
+            return changed.isEmpty() && removed.isEmpty();
+        }
+
+        /* true se il manifest è cambiato e va salvato anche senza nulla da indicizzare */
+        public boolean manifestChanged() {
+            return touched > 0 || !removed.isEmpty();
+        }
+    }
+
+    private final Map<String, Entry> entries;
+    // Voci dei file nuovi o modificati, registrate solo dopo l'indicizzazione riuscita (markIndexed)
+    private final Map<String, Entry> pending = new HashMap<>();
+    // Firma dello schema dei documenti con cui è stato costruito l'indice
+    private final String layout;
+
+
+    private IndexManifest(Map<String, Entry> entries, String layout) {
+        this.entries = entries;
+        this.layout = layout;
+    }
+
+
+    public static IndexManifest empty(String layout) {
+        return new IndexManifest(new HashMap<>(), layout);
+    }
+
+
+    public String getLayout() {
+        return layout;
+    }
+
+
+    /* Carica il manifest dalla directory dell'indice; null se non esiste */
+    public static IndexManifest load(Path indexDirectory) throws IOException {
+        Path file = indexDirectory.resolve(FILE_NAME);
+        if (!Files.exists(file)) return null;
+
+        Map<String, Entry> entries = new HashMap<>();
+        String layout = "";
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(LAYOUT_PREFIX)) layout = line.substring(LAYOUT_PREFIX.length());
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split("\t");
+                if (parts.length != 4) continue;
+                entries.put(parts[0], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]));
+            }
+        }
+        return new IndexManifest(entries, layout);
+    }
+
+
+    /* Scrive il manifest in modo atomico (file temporaneo + rename) */
+    public void save(Path indexDirectory) throws IOException {
+        Path file = indexDirectory.resolve(FILE_NAME);
+        Path tmp = indexDirectory.resolve(FILE_NAME + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write(LAYOUT_PREFIX + layout + "\n");
+            writer.write("# nome\tdimensione\tmodifica\tsha256\n");
+            for (Map.Entry<String, Entry> e : new TreeMap<>(entries).entrySet()) {
+                Entry entry = e.getValue();
+                writer.write(e.getKey() + "\t" + entry.size() + "\t" + entry.lastModified() + "\t" + entry.hash() + "\n");
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * Confronta i file sorgente con il manifest e lo aggiorna per i file invariati e rimossi.
+     * I file nuovi o modificati entrano nel manifest solo con markIndexed, dopo che i loro documenti sono stati
+     * indicizzati: un file che non si riesce a leggere viene così riprocessato alla sincronizzazione successiva.
+     * L'hash viene calcolato solo quando dimensione o data di modifica differiscono,
+     * così un corpus invariato non viene riletto.
+     */
+    public Diff update(File[] files) throws IOException {
+        List<File> changed = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int unchanged = 0;
+        int touched = 0;
+
+        for (File file : files) {
+            String name = file.getName();
+            seen.add(name);
+            Entry old = entries.get(name);
+            long size = file.length();
+            long lastModified = file.lastModified();
+
+            if (old != null && old.size() == size && old.lastModified() == lastModified) {
+                unchanged++;
+                continue;
+            }
+
+            String hash = hash(file);
+            Entry entry = new Entry(size, lastModified, hash);
+            if (old != null && old.hash().equals(hash)) {
+                entries.put(name, entry);
+                unchanged++; // solo la data di modifica è cambiata
+                touched++;
+            } else {
+                pending.put(name, entry);
+                changed.add(file);
+            }
+        }
+
+        Set<String> removed = new HashSet<>(entries.keySet());
+        removed.removeAll(seen);
+        entries.keySet().removeAll(removed);
+
+        return new Diff(changed, removed, unchanged, touched);
+    }
+
+
+    /* Registra la nuova versione di un file nuovo o modificato, i cui documenti sono stati indicizzati */
+    public void markIndexed(String name) {
+        Entry entry = pending.remove(name);
+        if (entry != null) entries.put(name, entry);
+    }
+
+
+    /*
+     * Il file non è stato indicizzato: la voce precedente viene rimossa (i suoi documenti sono già stati eliminati
+     * dall'indice), così alla sincronizzazione successiva il file risulta nuovo e viene riprocessato.
+     */
+    public void markFailed(String name) {
+        pending.remove(name);
+        entries.remove(name);
+    }
+
+
+    private static String hash(File file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package it.uniroma3.idd.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+
+/**
+ * Cache LRU limitata per peso (es. byte stimati) con contatori di hit, miss ed eviction.
+ * Gli accessi sono sincronizzati: le sezioni critiche sono brevi rispetto al lavoro che la cache evita.
+ */
+public class LruCache<K, V> {
+
+    public record Stats(long hits, long misses, long evictions, int entries, long weight, long maxWeight) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    private record Weighted<V>(V value, long weight) {}
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    // accessOrder = true: l'iterazione parte dall'elemento usato meno di recente
+    private final LinkedHashMap<K, Weighted<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+
+    public LruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+
+    public boolean isEnabled() {
+        return maxWeight > 0;
+    }
+
+
+    public synchronized V get(K key) {
+        Weighted<V> entry = map.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value();
+    }
+
+
+    public synchronized void put(K key, V value) {
+        long w = weigher.applyAsLong(value);
+        if (w > maxWeight) return; // non entrerebbe comunque
+        Weighted<V> previous = map.put(key, new Weighted<>(value, w));
+        if (previous != null) weight -= previous.weight();
+        weight += w;
+
+        Iterator<Map.Entry<K, Weighted<V>>> it = map.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Map.Entry<K, Weighted<V>> eldest = it.next();
+            weight -= eldest.getValue().weight();
+            it.remove();
+            evictions++;
+        }
+    }
+
+
+    /* Rimuove le voci che soddisfano il predicato (invalidazione, non conteggiata come eviction) */
+    public synchronized void removeIf(Predicate<K> predicate) {
+        Iterator<Map.Entry<K, Weighted<V>>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, Weighted<V>> entry = it.next();
+            if (predicate.test(entry.getKey())) {
+                weight -= entry.getValue().weight();
+                it.remove();
+            }
+        }
+    }
+
+
+    public synchronized void clear() {
+        map.clear();
+        weight = 0;
+    }
+
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, map.size(), weight, maxWeight);
+    }
+}
@@ -9,9 +9,12 @@ import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import org.jsoup.select.Elements;
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -19,12 +22,15 @@ import java.util.ArrayList;
 import java.util.List;
 import org.jsoup.nodes.Element;
 import java.util.Map;
+import java.util.function.Consumer;
 
 
 @Component
 public class Parser {
 
     private final LuceneConfig luceneConfig;
+    // ObjectMapper è thread-safe: condiviso dai worker della pipeline di ingestione
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
 
     @Autowired
@@ -35,7 +41,7 @@ public class Parser {
     /* ----------------------------
     ------------ UTILS ------------
     -------------------------------*/
-    private String extractPublicationDate(Document document) {
+    private ArticleStreamExtractor.PubDate extractPublicationDate(Document document) {
         // epub
         Element pubDate = document.selectFirst("pub-date[pub-type=epub]");
         // ppub
@@ -46,16 +52,23 @@ public class Parser {
         if (pubDate == null) {
             pubDate = document.selectFirst("pub-date");
         }
+        if (pubDate == null) return null;
+        Element stringDate = pubDate.selectFirst("string-date");
+        return new ArticleStreamExtractor.PubDate(stringDate != null ? stringDate.text() : null,
+                pubDate.select("year").text(), pubDate.select("month").text(), pubDate.select("day").text());
+    }
+
+
+    private String formatPublicationDate(ArticleStreamExtractor.PubDate pubDate) {
         if (pubDate == null) return "Unknown Date";
         // string-date
-        Element stringDate = pubDate.selectFirst("string-date");
-        if (stringDate != null) {
-            return normalizeStringDate(stringDate.text());
+        if (pubDate.stringDate() != null) {
+            return normalizeStringDate(pubDate.stringDate());
         }
         // anno / mese / giorno
-        String year = pubDate.select("year").text();
-        String month = normalizeMonth(pubDate.select("month").text());
-        String day = pubDate.select("day").text();
+        String year = pubDate.year();
+        String month = normalizeMonth(pubDate.month());
+        String day = pubDate.day();
 
         if (year.isEmpty()) return "Unknown Date";
 
@@ -125,9 +138,28 @@ public class Parser {
     }
 
 
+    /*
+     * Legge un array JSON un elemento alla volta con il JsonParser di Jackson: in memoria resta solo
+     * l'albero dell'elemento corrente, non quello dell'intero file (html_body delle tabelle può essere enorme).
+     * Gli elementi già consegnati restano validi anche se il file si interrompe più avanti.
+     */
+    private void streamJsonArray(File file, Consumer<JsonNode> entryConsumer) throws IOException {
+        try (JsonParser jsonParser = objectMapper.createParser(file)) {
+            if (jsonParser.nextToken() != JsonToken.START_ARRAY) {
+                System.err.println("ERROR PARSING JSON: File " + file.getName() + " is NOT a JSON Array. Skipping.");
+                return;
+            }
+            JsonToken token;
+            while ((token = jsonParser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                entryConsumer.accept(jsonParser.readValueAsTree());
+            }
+        }
+    }
+
+
+    // Testo del body di una tabella senza costruire un DOM jsoup per ogni tabella
     public String cleanHtml(String htmlContent) {
-        Document doc = Jsoup.parse(htmlContent);
-        return doc.text();
+        return HtmlTextStripper.text(htmlContent);
     }
     
 
@@ -143,200 +175,216 @@ public class Parser {
                lower.endsWith(".svg");
     }
 
-    /* -----------------------------
-    ---------- ARTICLES ------------
-    -------------------------------*/
-    public List<Article> articleParser() {
-        File dir = new File(luceneConfig.getArticlesPath());
+    // Elenca i file di una directory sorgente con l'estensione indicata (array vuoto se la directory manca)
+    private File[] listSourceFiles(String path, String extension, String label) {
+        File dir = new File(path);
         if (!dir.exists() || !dir.isDirectory()) {
-            System.err.println("Articles directory not found: " + dir.getAbsolutePath());
-            return new ArrayList<>();
+            System.err.println(label + " directory not found: " + dir.getAbsolutePath());
+            return new File[0];
         }
 
-        File[] files = dir.listFiles((dir1, name) -> name.endsWith(".html"));
+        File[] files = dir.listFiles((dir1, name) -> name.endsWith(extension));
         if (files == null) {
             System.err.println("Error listing files in: " + dir.getAbsolutePath());
-            return new ArrayList<>();
+            return new File[0];
         }
+        return files;
+    }
 
+    /* -----------------------------
+    ---------- ARTICLES ------------
+    -------------------------------*/
+    public File[] listArticleFiles() {
+        File[] files = listSourceFiles(luceneConfig.getArticlesPath(), ".html", "Articles");
         System.out.println("Number of files in the directory: " + files.length);
+        return files;
+    }
+
+
+    public List<Article> articleParser() {
         List<Article> articles = new ArrayList<>();
+        for (File file : listArticleFiles()) {
+            Article article = parseArticleFile(file);
+            if (article != null) articles.add(article);
+        }
+        return articles;
+    }
+
+
+    /* Rilegge il testo completo di un articolo dal file sorgente (null se il file non esiste) */
+    public String readArticleBody(String id) {
+        File file = new File(luceneConfig.getArticlesPath(), id + ".html");
+        if (!file.isFile()) return null;
+        Article article = parseArticleFile(file);
+        return article != null ? String.join(" ", article.getParagraphs()) : null;
+    }
 
-        for (File file : files) {
+
+    /*
+     * Estrae un singolo articolo; restituisce null se il file non è leggibile.
+     * Con lucene.parser.streaming (default) il file viene letto una sola volta in streaming; la parità con il
+     * percorso jsoup è verificata da ArticleParserParityTest.
+     */
+    public Article parseArticleFile(File file) {
+        try {
+            return luceneConfig.isStreamingArticleParser() ? parseArticleStreaming(file) : parseArticleJsoup(file);
+        } catch (IOException e) {
+            System.out.println("Error opening the file: " + file.getName());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+
+    // Un solo passaggio sul file: formato riconosciuto sullo stesso stream, poi StAX (JATS) o StreamParser (HTML)
+    private Article parseArticleStreaming(File file) throws IOException {
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file), ArticleStreamExtractor.SNIFF_LIMIT)) {
+            boolean isHtml = ArticleStreamExtractor.sniffHtml(in);
+            if (isHtml) return toArticle(file, ArticleStreamExtractor.extractHtml(in));
             try {
-                // Rileva se il file è HTML o XML
-                boolean isHtml = false;
-                try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-                    // Leggi le prime righe per sicurezza, saltando le righe vuote
-                    for (int i = 0; i < 5; i++) {
-                        String line = br.readLine();
-                        if (line == null) break;
-                        line = line.trim().toLowerCase();
-                        if (line.isEmpty()) continue;
-                        
-                        if (line.startsWith("<!doctype html") || line.startsWith("<html")) {
-                            isHtml = true;
-                            break;
-                        }
-                        // Se vediamo la dichiarazione XML o tag specifici JATS, è XML
-                        if (line.startsWith("<?xml") || line.startsWith("<pmc-articleset") || line.startsWith("<article")) {
-                            isHtml = false;
-                            break;
-                        }
-                    }
-                }
+                return toArticle(file, ArticleStreamExtractor.extractJats(in));
+            } catch (XMLStreamException e) {
+                // XML non ben formato: il parser XML di jsoup è tollerante
+                System.err.println("Parsing JATS in streaming non riuscito per " + file.getName() + " (" + e.getMessage() + "), uso jsoup");
+            }
+        }
+        return parseArticleJsoup(file);
+    }
 
-                Document document;
-                if (isHtml) {
-                    document = Jsoup.parse(file, "UTF-8");
-                } else {
-                    document = Jsoup.parse(new FileInputStream(file), "UTF-8", "", org.jsoup.parser.Parser.xmlParser());
-                }
 
-                String id = file.getName().replaceFirst("(?i)\\.html?$", "");
-                
-                // Titolo
-                String title = "No Title Found";
-                if (isHtml) {
-                    Element metaTitle = document.selectFirst("meta[name=citation_title]");
-                    if (metaTitle != null) title = metaTitle.attr("content");
-                    else if (document.title() != null && !document.title().isEmpty()) title = document.title();
-                    else {
-                        // Fallback per PMC HTML: prova h1.content-title
-                        Element h1 = document.selectFirst("h1.content-title");
-                        if (h1 != null) title = h1.text();
-                    }
-                } else {
-                    title = document.select("article-title").first() != null ? document.select("article-title").first().text() : "No Title Found";
-                }
-                
-                // Autori
-                List<String> authors = new ArrayList<>();
-                if (isHtml) {
-                    document.select("meta[name=citation_author]").forEach(meta -> {
-                        authors.add(meta.attr("content"));
-                    });
-                } else {
-                    document.select("contrib[contrib-type=author] name").forEach(nameElement -> {
-                        String surname = nameElement.select("surname").text();
-                        String givenNames = nameElement.select("given-names").text();
-                        authors.add(givenNames + " " + surname);
-                    });
+    // Percorso DOM completo con jsoup (riferimento dei test di parità)
+    private Article parseArticleJsoup(File file) throws IOException {
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file), ArticleStreamExtractor.SNIFF_LIMIT)) {
+            // Rileva se il file è HTML o XML
+            boolean isHtml = ArticleStreamExtractor.sniffHtml(in);
+            Document document = isHtml
+                    ? Jsoup.parse(in, "UTF-8", "")
+                    : Jsoup.parse(in, "UTF-8", "", org.jsoup.parser.Parser.xmlParser());
+            return toArticle(file, extractWithJsoup(document, isHtml));
+        }
+    }
+
+
+    private ArticleStreamExtractor.Fields extractWithJsoup(Document document, boolean isHtml) {
+        // Titolo
+        String title = null;
+        if (isHtml) {
+            Element metaTitle = document.selectFirst("meta[name=citation_title]");
+            if (metaTitle != null) title = metaTitle.attr("content");
+            else if (document.title() != null && !document.title().isEmpty()) title = document.title();
+            else {
+                // Fallback per PMC HTML: prova h1.content-title
+                Element h1 = document.selectFirst("h1.content-title");
+                if (h1 != null) title = h1.text();
+            }
+        } else {
+            Element articleTitle = document.selectFirst("article-title");
+            if (articleTitle != null) title = articleTitle.text();
+        }
+
+        // Autori
+        List<String> authors = new ArrayList<>();
+        if (isHtml) {
+            document.select("meta[name=citation_author]").forEach(meta -> {
+                authors.add(meta.attr("content"));
+            });
+        } else {
+            document.select("contrib[contrib-type=author] name").forEach(nameElement -> {
+                String surname = nameElement.select("surname").text();
+                String givenNames = nameElement.select("given-names").text();
+                authors.add(givenNames + " " + surname);
+            });
+        }
+
+        // Abstract
+        String articleAbstract = null;
+        if (isHtml) {
+            Element metaDesc = document.selectFirst("meta[name=description]");
+            if (metaDesc != null) articleAbstract = metaDesc.attr("content");
+            else {
+                Element ogDesc = document.selectFirst("meta[name=og:description]");
+                if (ogDesc != null) articleAbstract = ogDesc.attr("content");
+                else {
+                    // Fallback: prova a trovare il div dell'abstract
+                    Element absDiv = document.selectFirst("div.abstract-content, div#abstract-1");
+                    if (absDiv != null) articleAbstract = absDiv.text();
                 }
-                
-                // Abstract
-                String articleAbstract = "No Abstract Found";
-                if (isHtml) {
-                    Element metaDesc = document.selectFirst("meta[name=description]");
-                    if (metaDesc != null) articleAbstract = metaDesc.attr("content");
-                    else {
-                        Element ogDesc = document.selectFirst("meta[name=og:description]");
-                        if (ogDesc != null) articleAbstract = ogDesc.attr("content");
-                        else {
-                            // Fallback: prova a trovare il div dell'abstract
-                            Element absDiv = document.selectFirst("div.abstract-content, div#abstract-1");
-                            if (absDiv != null) articleAbstract = absDiv.text();
-                        }
-                    }
-                } else {
-                    articleAbstract = document.select("abstract p").first() != null ? document.select("abstract p").text() : "No Abstract Found";
+            }
+        } else {
+            Elements abstractParagraphs = document.select("abstract p");
+            if (!abstractParagraphs.isEmpty()) articleAbstract = abstractParagraphs.text();
+        }
+
+        // Data
+        String htmlDate = null;
+        ArticleStreamExtractor.PubDate jatsDate = null;
+        if (isHtml) {
+            Element metaDate = document.selectFirst("meta[name=citation_publication_date]");
+            if (metaDate != null) htmlDate = metaDate.attr("content");
+        } else {
+            jatsDate = extractPublicationDate(document);
+        }
+
+        // Paragrafi (Corpo)
+        List<String> paragraphs = new ArrayList<>();
+        if (isHtml) {
+            document.select("body p").forEach(paragraph -> {
+                String text = paragraph.text();
+                if (text.length() > 50) { // Filtra testo di navigazione breve
+                    paragraphs.add(text);
                 }
-                
-                // Data
-                String publicationDate = "Unknown Date";
-                if (isHtml) {
-                    Element metaDate = document.selectFirst("meta[name=citation_publication_date]");
-                    if (metaDate != null) {
-                        publicationDate = normalizeStringDate(metaDate.attr("content"));
-                    }
-                } else {
-                    publicationDate = extractPublicationDate(document);
+            });
+        } else {
+            document.select("body p").forEach(paragraph -> {
+                String text = paragraph.text();
+                if (!text.isEmpty()) {
+                    paragraphs.add(text);
                 }
+            });
+        }
 
-                // Paragrafi (Corpo)
-                List<String> paragraphs = new ArrayList<>();
-                if (isHtml) {
-                    document.select("body p").forEach(paragraph -> {
-                        String text = paragraph.text();
-                        if (text.length() > 50) { // Filtra testo di navigazione breve
-                            paragraphs.add(text);
-                        }
-                    });
-                } else {
-                    document.select("body p").forEach(paragraph -> {
-                        String text = paragraph.text();
-                        if (!text.isEmpty()) {
-                            paragraphs.add(text);
-                        }
-                    });
-                }
+        return new ArticleStreamExtractor.Fields(isHtml, title, authors, articleAbstract, htmlDate, jatsDate, paragraphs);
+    }
 
-                if (articleAbstract.isEmpty() || articleAbstract.length() < 20) {
-                    articleAbstract = "No Abstract Found";
-                }
 
-                Article article = new Article(id, title, authors, paragraphs, articleAbstract, publicationDate);
-                articles.add(article);
+    // Valori di default e normalizzazioni comuni ai due percorsi di estrazione
+    private Article toArticle(File file, ArticleStreamExtractor.Fields fields) {
+        String id = file.getName().replaceFirst("(?i)\\.html?$", "");
 
-            } catch (IOException e) {
-                System.out.println("Error opening the file: " + file.getName());
-                e.printStackTrace();
-            }
+        String title = fields.title() != null ? fields.title() : "No Title Found";
+
+        String articleAbstract = fields.articleAbstract() != null ? fields.articleAbstract() : "No Abstract Found";
+        if (articleAbstract.isEmpty() || articleAbstract.length() < 20) {
+            articleAbstract = "No Abstract Found";
         }
-        return articles;
+
+        String publicationDate;
+        if (fields.html()) {
+            publicationDate = fields.htmlDate() != null ? normalizeStringDate(fields.htmlDate()) : "Unknown Date";
+        } else {
+            publicationDate = formatPublicationDate(fields.jatsDate());
+        }
+
+        return new Article(id, title, fields.authors(), fields.paragraphs(), articleAbstract, publicationDate);
     }
 
+
+
     /* ----------------------------
     ---------- TABLE --------------
     -------------------------------*/
-    public List<Table> tableParser() {
-        File dir = new File(luceneConfig.getTablePath());
-        if (!dir.exists() || !dir.isDirectory()) {
-            System.err.println("Tables directory not found: " + dir.getAbsolutePath());
-            return new ArrayList<>();
-        }
+    public File[] listTableFiles() {
+        File[] files = listSourceFiles(luceneConfig.getTablePath(), ".json", "Tables");
+        System.out.println("Number of JSON files found: " + files.length);
+        return files;
+    }
 
-        File[] files = dir.listFiles((dir1, name) -> name.endsWith(".json"));
-        if (files == null) {
-            System.err.println("Error listing files in: " + dir.getAbsolutePath());
-            return new ArrayList<>();
-        }
 
-        System.out.println("Number of JSON files found: " + files.length);
+    public List<Table> tableParser() {
         List<Table> tables = new ArrayList<>();
-
-        for (File file : files) {
+        for (File file : listTableFiles()) {
             try {
-                ObjectMapper objectMapper = new ObjectMapper();
-                JsonNode jsonNode = objectMapper.readTree(file);
-                
-                if (!jsonNode.isArray()) {
-                    System.err.println("ERROR PARSING JSON: File " + file.getName() + " is NOT a JSON Array. Skipping.");
-                    continue; 
-                }
-
-                int tablesInFile = 0;
-                for (JsonNode tableEntry : jsonNode) {
-                    
-                    // Costruiamo l'ID combinando paper_id e table_id
-                    String paperId = tableEntry.get("paper_id").asText("");
-                    paperId = paperId.replaceFirst("(?i)\\.html?$", ""); 
-                    String tableId = tableEntry.get("table_id").asText();
-                    String id = paperId + "-" + tableId; 
-
-                    // Estrazione dei campi
-                    String caption = tableEntry.get("caption") != null ? tableEntry.get("caption").asText("") : "";
-                    String tableHtml = tableEntry.get("body") != null ? tableEntry.get("body").asText("") : "";
-                    String htmlBody = tableEntry.get("html_body") != null ? tableEntry.get("html_body").asText("") : "";
-                    
-                    // Gestisci i campi List<String>
-                    List<String> mentions = extractStringList(tableEntry, "mentions");
-                    List<String> context_paragraphs = extractStringList(tableEntry, "context_paragraphs");
-
-                    Table table = new Table(id, caption, tableHtml, cleanHtml(tableHtml), mentions, context_paragraphs, paperId, htmlBody);
-                    tables.add(table);
-                    tablesInFile++;
-                }
+                parseTableFile(file, tables::add);
             } catch (IOException e) {
                 System.err.println("CRITICAL JSON PARSING ERROR in file: " + file.getName() + ". Message: " + e.getMessage());
             }
@@ -346,86 +394,96 @@ public class Parser {
     }
 
 
-    /* ----------------------------
-    ---------- IMAGES -------------
-    -------------------------------*/
-    public List<Image> imageParser() {
-        File dir = new File(luceneConfig.getImgPath());
-        if (!dir.exists() || !dir.isDirectory()) {
-            System.err.println("Images directory not found: " + dir.getAbsolutePath());
-            return new ArrayList<>();
-        }
+    /* Estrae le tabelle di un singolo file JSON consegnandole una alla volta al sink; IOException se il file non è valido */
+    public void parseTableFile(File file, Consumer<Table> sink) throws IOException {
+        streamJsonArray(file, tableEntry -> {
 
-        File[] files = dir.listFiles((d, name) -> name.endsWith(".json"));
-        if (files == null) {
-            System.err.println("Error listing files in: " + dir.getAbsolutePath());
-            return new ArrayList<>();
-        }
+            // Costruiamo l'ID combinando paper_id e table_id
+            String paperId = tableEntry.get("paper_id").asText("");
+            paperId = paperId.replaceFirst("(?i)\\.html?$", ""); 
+            String tableId = tableEntry.get("table_id").asText();
+            String id = paperId + "-" + tableId; 
 
-        System.out.println("Number of image JSON files found: " + files.length);
-        List<Image> images = new ArrayList<>();
+            // Estrazione dei campi
+            String caption = tableEntry.get("caption") != null ? tableEntry.get("caption").asText("") : "";
+            String tableHtml = tableEntry.get("body") != null ? tableEntry.get("body").asText("") : "";
+            String htmlBody = tableEntry.get("html_body") != null ? tableEntry.get("html_body").asText("") : "";
+            
+            // Gestisci i campi List<String>
+            List<String> mentions = extractStringList(tableEntry, "mentions");
+            List<String> context_paragraphs = extractStringList(tableEntry, "context_paragraphs");
 
-        ObjectMapper objectMapper = new ObjectMapper();
+            sink.accept(new Table(id, caption, tableHtml, cleanHtml(tableHtml), mentions, context_paragraphs, paperId, htmlBody));
+        });
+    }
 
-        for (File file : files) {
-            try {
-                JsonNode jsonNode = objectMapper.readTree(file);
 
-                if (!jsonNode.isArray()) {
-                    System.err.println("ERROR PARSING JSON: File " + file.getName()
-                            + " is NOT a JSON Array. Skipping.");
-                    continue;
-                }
+    /* ----------------------------
+    ---------- IMAGES -------------
+    -------------------------------*/
+    public File[] listImageFiles() {
+        File[] files = listSourceFiles(luceneConfig.getImgPath(), ".json", "Images");
+        System.out.println("Number of image JSON files found: " + files.length);
+        return files;
+    }
 
-                for (JsonNode imgEntry : jsonNode) {
-
-                    // ---- ID ----
-                    String paperId = imgEntry.get("paper_id").asText("");
-                    paperId = paperId.replaceFirst("(?i)\\.html?$", "");
-                    String imageId = imgEntry.get("image_id").asText("");
-                    String id = paperId + "-" + imageId;
-
-                    // ---- CAMPI SEMPLICI ----
-                    String caption = imgEntry.path("caption").asText("");
-                    String alt = imgEntry.path("alt").asText("");
-                    String src = imgEntry.path("src").asText("");
-                    if (isJunkImage(src)) continue;
-
-                    String srcResolved = imgEntry.path("src_resolved").asText("");
-                    String savedPath = imgEntry.path("saved_path").asText("");
-                    String linkHref = imgEntry.path("link_href").asText("");
-                    String fileName = imgEntry.path("fileName").asText("");
-
-                    // ---- LISTE ----
-                    List<String> mentions = extractStringList(imgEntry, "mentions");
-                    List<String> context_paragraphs =
-                            extractStringList(imgEntry, "context_paragraphs");
-
-                    // ---- MODEL ----
-                    Image image = new Image(
-                            id,
-                            caption,
-                            alt,
-                            src,
-                            srcResolved,
-                            savedPath,
-                            linkHref,
-                            mentions,
-                            context_paragraphs,
-                            fileName
-                    );
-
-                    images.add(image);
-                }
 
+    public List<Image> imageParser() {
+        List<Image> images = new ArrayList<>();
+        for (File file : listImageFiles()) {
+            try {
+                parseImageFile(file, images::add);
             } catch (IOException e) {
-                System.err.println("CRITICAL JSON PARSING ERROR in file: "
-                        + file.getName() + ". Message: " + e.getMessage());
+                System.err.println("CRITICAL JSON PARSING ERROR in file: " + file.getName() + ". Message: " + e.getMessage());
             }
         }
-
         System.out.println("Successfully parsed a total of " + images.size() + " images.");
         return images;
     }
 
+
+    /* Estrae le immagini di un singolo file JSON consegnandole una alla volta al sink; IOException se il file non è valido */
+    public void parseImageFile(File file, Consumer<Image> sink) throws IOException {
+        streamJsonArray(file, imgEntry -> {
+
+            // ---- ID ----
+            String paperId = imgEntry.get("paper_id").asText("");
+            paperId = paperId.replaceFirst("(?i)\\.html?$", "");
+            String imageId = imgEntry.get("image_id").asText("");
+            String id = paperId + "-" + imageId;
+
+            // ---- CAMPI SEMPLICI ----
+            String caption = imgEntry.path("caption").asText("");
+            String alt = imgEntry.path("alt").asText("");
+            String src = imgEntry.path("src").asText("");
+            if (isJunkImage(src)) return;
+
+            String srcResolved = imgEntry.path("src_resolved").asText("");
+            String savedPath = imgEntry.path("saved_path").asText("");
+            String linkHref = imgEntry.path("link_href").asText("");
+            String fileName = imgEntry.path("fileName").asText("");
+
+            // ---- LISTE ----
+            List<String> mentions = extractStringList(imgEntry, "mentions");
+            List<String> context_paragraphs =
+                    extractStringList(imgEntry, "context_paragraphs");
+
+            // ---- MODEL ----
+            Image image = new Image(
+                    id,
+                    caption,
+                    alt,
+                    src,
+                    srcResolved,
+                    savedPath,
+                    linkHref,
+                    mentions,
+                    context_paragraphs,
+                    fileName
+            );
+
+            sink.accept(image);
+        });
+    }
+
 }
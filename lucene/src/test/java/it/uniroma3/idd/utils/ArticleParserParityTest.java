@@ -0,0 +1,63 @@
+package it.uniroma3.idd.utils;
+
+import it.uniroma3.idd.config.LuceneConfig;
+import it.uniroma3.idd.model.Article;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+
+/**
+ * Parità tra l'estrazione in streaming degli articoli (StAX per JATS, StreamParser per HTML) e il percorso DOM di jsoup:
+ * per ogni file in parity/articles i due percorsi devono produrre gli stessi campi.
+ */
+class ArticleParserParityTest {
+
+    static Stream<File> articleFixtures() throws IOException, URISyntaxException {
+        Path dir = Path.of(ArticleParserParityTest.class.getResource("/parity/articles").toURI());
+        try (Stream<Path> files = Files.list(dir)) {
+            List<File> fixtures = files.filter(p -> p.toString().endsWith(".html")).sorted().map(Path::toFile).toList();
+            assertFalse(fixtures.isEmpty(), "Nessun articolo di prova in " + dir);
+            return fixtures.stream();
+        }
+    }
+
+
+    private static Parser parser(boolean streaming) {
+        LuceneConfig config = new LuceneConfig();
+        ReflectionTestUtils.setField(config, "streamingArticleParser", streaming);
+        return new Parser(config);
+    }
+
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("articleFixtures")
+    void streamingMatchesJsoup(File file) {
+        Article streamed = parser(true).parseArticleFile(file);
+        Article jsoup = parser(false).parseArticleFile(file);
+        assertNotNull(streamed, "streaming: " + file.getName());
+        assertNotNull(jsoup, "jsoup: " + file.getName());
+
+        assertEquals(jsoup.getId(), streamed.getId(), "id");
+        assertEquals(jsoup.getTitle(), streamed.getTitle(), "title");
+        assertEquals(jsoup.getArticleAbstract(), streamed.getArticleAbstract(), "articleAbstract");
+        assertEquals(jsoup.getAuthors(), streamed.getAuthors(), "authors");
+        assertEquals(jsoup.getParagraphs(), streamed.getParagraphs(), "paragraphs");
+        assertEquals(jsoup.getPublicationDate(), streamed.getPublicationDate(), "publicationDate");
+
+        // Ogni articolo di prova ha un titolo: un confronto tra due valori di default non verificherebbe nulla
+        assertNotEquals("No Title Found", streamed.getTitle(), "title");
+    }
+}
@@ -0,0 +1,59 @@
+package it.uniroma3.idd.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+
+/**
+ * Confronto differenziale tra HtmlTextStripper e Jsoup.parse(..).text() sulle tabelle di parity/tables:
+ * per ogni tabella il testo estratto da "body" e da "html_body" deve coincidere con quello di jsoup.
+ * I riferimenti numerici non validi hanno un caso a parte: diventano U+FFFD come da specifica HTML.
+ */
+class HtmlTextStripperTest {
+
+    private static final String[] HTML_FIELDS = {"body", "html_body"};
+
+
+    static Stream<Arguments> tableFixtures() throws IOException {
+        List<Arguments> fixtures = new ArrayList<>();
+        try (InputStream in = HtmlTextStripperTest.class.getResourceAsStream("/parity/tables/tables.json")) {
+            for (JsonNode table : new ObjectMapper().readTree(in)) {
+                for (String field : HTML_FIELDS) {
+                    String name = table.path("paper_id").asText() + "/" + table.path("table_id").asText() + "/" + field;
+                    fixtures.add(Arguments.of(name, table.path(field).asText()));
+                }
+            }
+        }
+        assertFalse(fixtures.isEmpty(), "Nessuna tabella di prova in parity/tables");
+        return fixtures.stream();
+    }
+
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("tableFixtures")
+    void textMatchesJsoup(String name, String html) {
+        assertEquals(Jsoup.parse(html).text(), HtmlTextStripper.text(html), name);
+    }
+
+
+    // Unica differenza voluta dai caratteri di jsoup 1.21, che lascia NUL e surrogati isolati nel testo
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({"&#0;", "&#x0;", "&#xD800;", "&#55296;", "&#xDFFF;", "&#x110000;", "&#99999999999;"})
+    void invalidNumericReferenceIsReplacementCharacter(String reference) {
+        String html = "<table><tr><td>a" + reference + "b</td></tr></table>";
+        assertEquals("a\uFFFDb", HtmlTextStripper.text(html), reference);
+    }
+}